@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+
+/**
+ * Synthetic schema generators for benchmarks
+ *
+ * <p>All generated schemas are draft v4 schemas and are syntactically valid,
+ * unless stated otherwise.</p>
+ */
+public final class SchemaGenerator
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    private SchemaGenerator()
+    {
+    }
+
+    /**
+     * Generate a large schema
+     *
+     * <p>The generated schema is an object schema with {@code breadth}
+     * properties, each of which is in turn an object schema with {@code
+     * breadth} properties, down to {@code depth} levels. Leaf schemas use a
+     * mix of keywords, including {@code pattern}. Each level also has a
+     * {@code definitions} entry and an {@code anyOf} to exercise schema arrays.
+     * </p>
+     *
+     * <p>The number of subschemas is roughly {@code breadth ^ depth}.</p>
+     *
+     * @param breadth the number of properties per level
+     * @param depth the nesting depth
+     * @return a schema
+     */
+    public static JsonNode largeSchema(final int breadth, final int depth)
+    {
+        final ObjectNode schema = FACTORY.objectNode();
+        schema.put("$schema", "http://json-schema.org/draft-04/schema#");
+        fill(schema, breadth, depth);
+        return schema;
+    }
+
+    /**
+     * Generate a chain of JSON References within a single document
+     *
+     * <p>The root of the document is a reference to {@code
+     * #/definitions/d0}; {@code d0} refers to {@code d1}, and so on up to
+     * {@code d<length - 1>}. If {@code cyclic} is false, this last definition
+     * is a plain schema; if it is true, it refers back to {@code d0}, which
+     * forms a reference loop.</p>
+     *
+     * @param length the number of references in the chain
+     * @param cyclic whether the chain should loop
+     * @return a schema
+     */
+    public static JsonNode refChain(final int length, final boolean cyclic)
+    {
+        final ObjectNode schema = FACTORY.objectNode();
+        final ObjectNode definitions = schema.putObject("definitions");
+
+        schema.put("$ref", "#/definitions/d0");
+
+        for (int i = 0; i < length - 1; i++)
+            definitions.putObject("d" + i)
+                .put("$ref", "#/definitions/d" + (i + 1));
+
+        final ObjectNode last = definitions.putObject("d" + (length - 1));
+        if (cyclic)
+            last.put("$ref", "#/definitions/d0");
+        else
+            last.put("type", "string");
+
+        return schema;
+    }
+
+    /**
+     * Generate a schema with a given number of {@code id}-scoped subschemas
+     *
+     * <p>The root schema has an absolute {@code id}; each of the {@code count}
+     * definitions has a relative {@code id} which resolves against it.</p>
+     *
+     * @param count the number of subschemas with an {@code id}
+     * @return a schema
+     */
+    public static JsonNode idScopedSchema(final int count)
+    {
+        final ObjectNode schema = FACTORY.objectNode();
+        schema.put("id", "http://benchmark.local/root.json#");
+        final ObjectNode definitions = schema.putObject("definitions");
+
+        ObjectNode definition;
+        for (int i = 0; i < count; i++) {
+            definition = definitions.putObject("s" + i);
+            definition.put("id", "scoped/s" + i + ".json#");
+            definition.put("type", "object");
+            definition.putObject("properties").putObject("p")
+                .put("type", "integer");
+        }
+
+        return schema;
+    }
+
+    private static void fill(final ObjectNode schema, final int breadth,
+        final int depth)
+    {
+        if (depth == 0) {
+            schema.put("type", "string");
+            schema.put("minLength", 1);
+            schema.put("pattern", "^[a-z][a-z0-9_]*$");
+            schema.putArray("enum").add("a").add("b_1").add("c_2");
+            return;
+        }
+
+        schema.put("type", "object");
+        schema.put("additionalProperties", false);
+
+        final ArrayNode required = schema.putArray("required");
+        final ObjectNode properties = schema.putObject("properties");
+
+        String name;
+        for (int i = 0; i < breadth; i++) {
+            name = "p" + i;
+            required.add(name);
+            fill(properties.putObject(name), breadth, depth - 1);
+        }
+
+        schema.putObject("patternProperties").putObject("^x-")
+            .put("type", "string");
+        schema.putObject("definitions").putObject("leaf")
+            .put("type", "number").put("minimum", 0);
+        final ArrayNode anyOf = schema.putArray("anyOf");
+        anyOf.addObject().put("$ref", "#/definitions/leaf");
+        anyOf.addObject().put("maxProperties", breadth + 1);
+    }
+}
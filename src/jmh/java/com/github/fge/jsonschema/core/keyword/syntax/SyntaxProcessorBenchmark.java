@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.keyword.syntax;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jsonschema.SchemaVersion;
+import com.github.fge.jsonschema.benchmark.SchemaGenerator;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.keyword.syntax.checkers.SyntaxChecker;
+import com.github.fge.jsonschema.core.keyword.syntax.dictionaries.DraftV3SyntaxCheckerDictionary;
+import com.github.fge.jsonschema.core.keyword.syntax.dictionaries.DraftV4HyperSchemaSyntaxCheckerDictionary;
+import com.github.fge.jsonschema.core.keyword.syntax.dictionaries.DraftV4SyntaxCheckerDictionary;
+import com.github.fge.jsonschema.core.messages.JsonSchemaSyntaxMessageBundle;
+import com.github.fge.jsonschema.core.report.DevNullProcessingReport;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.core.tree.CanonicalSchemaTree;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import com.github.fge.jsonschema.core.tree.key.SchemaKey;
+import com.github.fge.jsonschema.core.util.Dictionary;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link SyntaxProcessor#rawProcess(ProcessingReport,
+ * SchemaTree)}
+ *
+ * <p>The bundled meta-schemas are checked against the dictionary of their own
+ * version; the synthetic schemas (see {@link
+ * SchemaGenerator#largeSchema(int, int)}) are checked against the draft v4
+ * dictionary.</p>
+ *
+ * <p>In parallel mode, subschemas are checked using a {@link ForkJoinPool}
+ * with as many threads as there are available processors. In cached mode,
+ * results are cached in a {@link SyntaxResultCache}, which is warm after
+ * the first operation.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SyntaxProcessorBenchmark
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaSyntaxMessageBundle.class);
+
+    @Param({ "draftv3", "draftv4", "hyper-schema", "synthetic-small",
+        "synthetic-large" })
+    public String schema;
+
+    @Param({ "sequential", "parallel", "cached" })
+    public String mode;
+
+    private ForkJoinPool pool;
+    private SyntaxProcessor processor;
+    private SchemaTree tree;
+
+    @Setup
+    public void setup()
+    {
+        final Dictionary<SyntaxChecker> dict;
+        final JsonNode node;
+
+        switch (schema) {
+            case "draftv3":
+                dict = DraftV3SyntaxCheckerDictionary.get();
+                node = SchemaVersion.DRAFTV3.getSchema();
+                break;
+            case "draftv4":
+                dict = DraftV4SyntaxCheckerDictionary.get();
+                node = SchemaVersion.DRAFTV4.getSchema();
+                break;
+            case "hyper-schema":
+                dict = DraftV4HyperSchemaSyntaxCheckerDictionary.get();
+                node = SchemaVersion.DRAFTV4_HYPERSCHEMA.getSchema();
+                break;
+            case "synthetic-small":
+                dict = DraftV4SyntaxCheckerDictionary.get();
+                node = SchemaGenerator.largeSchema(4, 3);
+                break;
+            case "synthetic-large":
+                dict = DraftV4SyntaxCheckerDictionary.get();
+                node = SchemaGenerator.largeSchema(8, 4);
+                break;
+            default:
+                throw new IllegalStateException("unknown schema " + schema);
+        }
+
+        switch (mode) {
+            case "parallel":
+                pool = new ForkJoinPool();
+                processor = new SyntaxProcessor(BUNDLE, dict,
+                    SyntaxProcessor.DEFAULT_MAX_DEPTH, pool, 4);
+                break;
+            case "cached":
+                processor = new SyntaxProcessor(BUNDLE, dict,
+                    SyntaxProcessor.DEFAULT_MAX_DEPTH, new SyntaxResultCache());
+                break;
+            default:
+                processor = new SyntaxProcessor(BUNDLE, dict);
+        }
+        tree = new CanonicalSchemaTree(SchemaKey.anonymousKey(), node);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        if (pool != null)
+            pool.shutdown();
+    }
+
+    @Benchmark
+    public SchemaTree rawProcess()
+        throws ProcessingException
+    {
+        final ProcessingReport report
+            = new DevNullProcessingReport(LogLevel.DEBUG, LogLevel.NONE);
+        return processor.rawProcess(report, tree);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load;
+
+import com.github.fge.jsonschema.benchmark.SchemaGenerator;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.report.DevNullProcessingReport;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link RefResolver#rawProcess(ProcessingReport, SchemaTree)}
+ *
+ * <p>Reference chains are generated by {@link
+ * SchemaGenerator#refChain(int, boolean)}. A cyclic chain always ends with a
+ * {@link ProcessingException}; the benchmark then measures how long it takes to
+ * detect the loop.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RefResolverBenchmark
+{
+    @Param({ "1", "16", "256" })
+    public int length;
+
+    @Param({ "canonical", "inline" })
+    public String dereferencing;
+
+    private RefResolver resolver;
+    private SchemaTree chain;
+    private SchemaTree loop;
+
+    @Setup
+    public void setup()
+    {
+        final Dereferencing mode = "inline".equals(dereferencing)
+            ? Dereferencing.INLINE : Dereferencing.CANONICAL;
+        resolver = new RefResolver(new SchemaLoader());
+        chain = mode.newTree(SchemaGenerator.refChain(length, false));
+        loop = mode.newTree(SchemaGenerator.refChain(length, true));
+    }
+
+    @Benchmark
+    public SchemaTree deepChain()
+        throws ProcessingException
+    {
+        final ProcessingReport report = new DevNullProcessingReport();
+        return resolver.rawProcess(report, chain);
+    }
+
+    @Benchmark
+    public Object cyclicChain()
+    {
+        final ProcessingReport report = new DevNullProcessingReport();
+        try {
+            return resolver.rawProcess(report, loop);
+        } catch (ProcessingException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonschema.benchmark.SchemaGenerator;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
+import com.github.fge.jsonschema.core.load.download.URIDownloader;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link SchemaLoader#get(URI)}
+ *
+ * <p>Schemas are served from memory by a dedicated {@link URIDownloader}, so
+ * that the figures do not depend on I/O. With a cold cache, a new loader is
+ * created for each operation, and the cost therefore includes parsing the
+ * schema; with a warm cache, the schema has already been loaded once.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchemaLoaderBenchmark
+{
+    private static final String SCHEME = "bench";
+    private static final URI SCHEMA_URI = URI.create("bench:/schema.json#");
+
+    @Param({ "2", "4", "8" })
+    public int breadth;
+
+    @Param({ "canonical", "inline" })
+    public String dereferencing;
+
+    private LoadingConfiguration cfg;
+    private SchemaLoader warmLoader;
+
+    @Setup
+    public void setup()
+        throws JsonProcessingException, ProcessingException
+    {
+        final byte[] content = JacksonUtils.newMapper()
+            .writeValueAsBytes(SchemaGenerator.largeSchema(breadth, 3));
+        final URIDownloader downloader = new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+            {
+                return new ByteArrayInputStream(content);
+            }
+        };
+        cfg = LoadingConfiguration.newBuilder()
+            .addScheme(SCHEME, downloader)
+            .dereferencing("inline".equals(dereferencing)
+                ? Dereferencing.INLINE : Dereferencing.CANONICAL)
+            .freeze();
+        warmLoader = new SchemaLoader(cfg);
+        warmLoader.get(SCHEMA_URI);
+    }
+
+    @Benchmark
+    public SchemaTree coldCache()
+        throws ProcessingException
+    {
+        return new SchemaLoader(cfg).get(SCHEMA_URI);
+    }
+
+    @Benchmark
+    public SchemaTree warmCache()
+        throws ProcessingException
+    {
+        return warmLoader.get(SCHEMA_URI);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.fge.jsonschema.benchmark.SchemaGenerator;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
+import com.github.fge.jsonschema.core.load.download.URIDownloader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for parsing large schemas in various content formats
+ *
+ * <p>Each operation gets a large schema with a {@link URIManager}, from a
+ * downloader serving it from memory as JSON text, Smile or CBOR.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class URIManagerBenchmark
+{
+    private static final URI SCHEMA_URI = URI.create("mem:/schema.json#");
+
+    @Param({ "json", "smile", "cbor" })
+    public String format;
+
+    private URIManager manager;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        final JsonFactory factory = "smile".equals(format) ? new SmileFactory()
+            : "cbor".equals(format) ? new CBORFactory() : new JsonFactory();
+        final JsonNode schema = SchemaGenerator.largeSchema(8, 5);
+        final byte[] content = new ObjectMapper(factory)
+            .writeValueAsBytes(schema);
+
+        manager = new URIManager(LoadingConfiguration.newBuilder()
+            .addScheme("mem", new URIDownloader()
+            {
+                @Override
+                public InputStream fetch(final URI source)
+                {
+                    return new ByteArrayInputStream(content);
+                }
+            }).freeze());
+    }
+
+    @Benchmark
+    public JsonNode getContent()
+        throws ProcessingException
+    {
+        return manager.getContent(SCHEMA_URI);
+    }
+}
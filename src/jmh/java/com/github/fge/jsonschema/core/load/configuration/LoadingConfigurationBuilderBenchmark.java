@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load.configuration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonNodeReader;
+import com.github.fge.jsonschema.benchmark.SchemaGenerator;
+import com.github.fge.jsonschema.core.load.bundle.SchemaBundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for preloading a directory of schema files
+ *
+ * <p>Each operation builds a loading configuration with all schemas of a
+ * directory preloaded, either by reading them one by one and calling {@link
+ * LoadingConfigurationBuilder#preloadSchema(String, JsonNode)} in a loop, or
+ * with {@link LoadingConfigurationBuilder#preloadDirectory(Path, String)}, or
+ * from a {@link SchemaBundle} built out of the same directory with {@link
+ * LoadingConfigurationBuilder#preloadBundle(InputStream)}.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadingConfigurationBuilderBenchmark
+{
+    private static final String BASE_URI = "http://my.site/schemas/";
+    private static final int COUNT = 2000;
+
+    private final JsonNodeReader reader = new JsonNodeReader();
+    private final List<Path> files = new ArrayList<Path>();
+    private Path directory;
+    private Path bundle;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        final byte[] content = JacksonUtils.newMapper()
+            .writeValueAsBytes(SchemaGenerator.largeSchema(2, 3));
+
+        directory = Files.createTempDirectory("schemas");
+        for (int i = 0; i < COUNT; i++)
+            files.add(Files.write(directory.resolve("schema" + i + ".json"),
+                content));
+
+        bundle = Files.createTempFile("schemas", ".bundle");
+        SchemaBundle.main(bundle.toString(), BASE_URI, directory.toString());
+    }
+
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        for (final Path file: files)
+            Files.delete(file);
+        Files.delete(directory);
+        Files.delete(bundle);
+    }
+
+    @Benchmark
+    public LoadingConfiguration preloadInLoop()
+        throws IOException
+    {
+        final LoadingConfigurationBuilder builder
+            = LoadingConfiguration.newBuilder();
+
+        for (final Path file: files)
+            try (
+                final InputStream in = Files.newInputStream(file);
+            ) {
+                builder.preloadSchema(BASE_URI + file.getFileName(),
+                    reader.fromInputStream(in));
+            }
+        return builder.freeze();
+    }
+
+    @Benchmark
+    public LoadingConfiguration preloadDirectory()
+        throws IOException
+    {
+        return LoadingConfiguration.newBuilder()
+            .preloadDirectory(directory, BASE_URI).freeze();
+    }
+
+    @Benchmark
+    public LoadingConfiguration preloadBundle()
+        throws IOException
+    {
+        try (
+            final InputStream in = Files.newInputStream(bundle);
+        ) {
+            return LoadingConfiguration.newBuilder().preloadBundle(in)
+                .freeze();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load.download;
+
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonschema.benchmark.SchemaGenerator;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.load.URIManager;
+import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for loading a directory of schema files
+ *
+ * <p>Each operation loads all schema files of a directory with a {@link
+ * URIManager}, using either {@link DefaultURIDownloader} ({@code url}) or
+ * {@link FileURIDownloader} ({@code file}) for the {@code file} scheme. Small
+ * schemas stay below the mapping threshold, large ones exceed it.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileURIDownloaderBenchmark
+{
+    @Param({ "url", "file" })
+    public String downloader;
+
+    @Param({ "small", "large" })
+    public String size;
+
+    private Path directory;
+    private final List<URI> uris = new ArrayList<URI>();
+    private URIManager manager;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        final boolean large = "large".equals(size);
+        final byte[] content = JacksonUtils.newMapper().writeValueAsBytes(
+            large ? SchemaGenerator.largeSchema(8, 5)
+                : SchemaGenerator.largeSchema(2, 3));
+        final int count = large ? 4 : 2000;
+
+        directory = Files.createTempDirectory("schemas");
+        Path file;
+        for (int i = 0; i < count; i++) {
+            file = directory.resolve("schema" + i + ".json");
+            Files.write(file, content);
+            uris.add(URI.create(file.toUri() + "#"));
+        }
+
+        manager = new URIManager(LoadingConfiguration.newBuilder()
+            .addScheme("file", "file".equals(downloader)
+                ? FileURIDownloader.getInstance()
+                : DefaultURIDownloader.getInstance())
+            .freeze());
+    }
+
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        for (final URI uri: uris)
+            Files.delete(directory.resolve(
+                uri.getPath().substring(uri.getPath().lastIndexOf('/') + 1)));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void loadDirectory(final Blackhole blackhole)
+        throws ProcessingException
+    {
+        for (final URI uri: uris)
+            blackhole.consume(manager.getContent(uri));
+    }
+}
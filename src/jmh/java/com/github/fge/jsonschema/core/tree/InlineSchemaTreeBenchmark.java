@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.tree;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonschema.SchemaVersion;
+import com.github.fge.jsonschema.benchmark.SchemaGenerator;
+import com.github.fge.jsonschema.core.exceptions.JsonReferenceException;
+import com.github.fge.jsonschema.core.ref.JsonRef;
+import com.github.fge.jsonschema.core.tree.key.SchemaKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the construction of an {@link InlineSchemaTree}, and for
+ * looking up references in it
+ *
+ * <p>The {@code ids-*} schemas are generated by {@link
+ * SchemaGenerator#idScopedSchema(int)}. The looked up reference is the one
+ * of the last scoped subschema, or the root schema if there is none.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InlineSchemaTreeBenchmark
+{
+    @Param({ "draftv4", "hyper-schema", "synthetic", "ids-100",
+        "ids-1000", "ids-5000" })
+    public String schema;
+
+    private SchemaKey key;
+    private JsonNode node;
+    private SchemaTree tree;
+    private JsonRef ref;
+
+    @Setup
+    public void setup()
+        throws JsonReferenceException
+    {
+        key = SchemaKey.forJsonRef(
+            JsonRef.fromString("http://benchmark.local/schema.json#"));
+
+        switch (schema) {
+            case "draftv4":
+                node = SchemaVersion.DRAFTV4.getSchema();
+                break;
+            case "hyper-schema":
+                node = SchemaVersion.DRAFTV4_HYPERSCHEMA.getSchema();
+                break;
+            case "synthetic":
+                node = SchemaGenerator.largeSchema(8, 4);
+                break;
+            case "ids-100":
+                node = SchemaGenerator.idScopedSchema(100);
+                break;
+            case "ids-1000":
+                node = SchemaGenerator.idScopedSchema(1000);
+                break;
+            case "ids-5000":
+                node = SchemaGenerator.idScopedSchema(5000);
+                break;
+            default:
+                throw new IllegalStateException("unknown schema " + schema);
+        }
+
+        tree = new InlineSchemaTree(key, node);
+        final int count = node.path("definitions").size();
+        ref = schema.startsWith("ids-")
+            ? JsonRef.fromString("http://benchmark.local/scoped/s"
+                + (count - 1) + ".json#/properties/p")
+            : key.getLoadingRef();
+    }
+
+    @Benchmark
+    public SchemaTree construct()
+    {
+        return new InlineSchemaTree(key, node);
+    }
+
+    @Benchmark
+    public JsonPointer matchingPointer()
+    {
+        return tree.matchingPointer(ref);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multithreaded benchmark for {@link RegexECMA262Helper#regexIsValid(String)}
+ *
+ * <p>The regex engine is chosen when {@link RegexECMA262Helper} is loaded, so
+ * each benchmark forks a JVM with the relevant system properties. The regex
+ * cache is disabled, so that each operation goes through the engine.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class RegexECMA262HelperBenchmark
+{
+    private static final String RHINO = "-D"
+        + RegexECMA262Helper.ENGINE_PROPERTY + "=rhino";
+    private static final String JAVA = "-D"
+        + RegexECMA262Helper.ENGINE_PROPERTY + "=java";
+    private static final String NO_CACHE = "-D"
+        + RegexECMA262Helper.CACHE_SIZE_PROPERTY + "=0";
+
+    private static final String[] REGEXES = {
+        "^[a-z][a-z0-9_]*$",
+        "^(?:[A-Za-z0-9+/]{4})*(?:[A-Za-z0-9+/]{2}==|[A-Za-z0-9+/]{3}=)?$",
+        "^\\d{4}-\\d{2}-\\d{2}$",
+        "[^\\s@]+@[^\\s@]+\\.[a-z]{2,}",
+        "^x-",
+        "(?<=invalid)"
+    };
+
+    private int index;
+
+    @TearDown
+    public void tearDown()
+    {
+        RegexECMA262Helper.releaseThreadResources();
+    }
+
+    private String nextRegex()
+    {
+        index = (index + 1) % REGEXES.length;
+        return REGEXES[index];
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { RHINO, NO_CACHE })
+    @Threads(1)
+    public boolean rhinoOneThread()
+    {
+        return RegexECMA262Helper.regexIsValid(nextRegex());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { RHINO, NO_CACHE })
+    @Threads(4)
+    public boolean rhinoFourThreads()
+    {
+        return RegexECMA262Helper.regexIsValid(nextRegex());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { RHINO, NO_CACHE })
+    @Threads(Threads.MAX)
+    public boolean rhinoAllThreads()
+    {
+        return RegexECMA262Helper.regexIsValid(nextRegex());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { JAVA, NO_CACHE })
+    @Threads(Threads.MAX)
+    public boolean javaAllThreads()
+    {
+        return RegexECMA262Helper.regexIsValid(nextRegex());
+    }
+}
@@ -19,34 +19,132 @@
 
 package com.github.fge.jsonschema.core.keyword.syntax;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.github.fge.jackson.NodeType;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jackson.jsonpointer.JsonPointerException;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
 import com.github.fge.jsonschema.core.util.Dictionary;
 import com.github.fge.jsonschema.core.processing.RawProcessor;
+import com.github.fge.jsonschema.core.report.ListProcessingReport;
+import com.github.fge.jsonschema.core.report.LogLevel;
 import com.github.fge.jsonschema.core.report.ProcessingMessage;
 import com.github.fge.jsonschema.core.report.ProcessingReport;
 import com.github.fge.jsonschema.core.keyword.syntax.checkers.SyntaxChecker;
 import com.github.fge.jsonschema.core.tree.SchemaTree;
+import com.github.fge.jsonschema.core.tree.key.SchemaKey;
 import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Ordering;
-import com.google.common.collect.Sets;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Syntax processor
+ *
+ * <p>The keyword to checker table is built once, when the processor is
+ * created: checkers are stored in an array in keyword order, along with the
+ * index of each keyword in this array. For each schema, member names are
+ * then looked up only once, and checkers are run in keyword order.</p>
+ *
+ * <p>Subschemas are visited depth first, in the order in which checkers
+ * collect them, using an explicit stack rather than recursion: very deeply
+ * nested schemas do not exhaust the thread's stack. A maximum depth can be
+ * set; subschemas nested deeper than this depth are reported as errors and
+ * not checked.</p>
+ *
+ * <p>Optionally, subschemas can be checked in parallel using a {@link
+ * ForkJoinPool}: when a schema has at least a given number of subschemas
+ * (the parallel threshold), each of them is checked in its own task, with
+ * its own report. Task reports are merged back in the order in which
+ * subschemas were collected, so that the report contents are the same as
+ * when checking sequentially. Note however that if the report is configured
+ * to throw an exception, this exception is only thrown when task reports are
+ * merged, that is after all subschemas of the schema have been checked.</p>
+ *
+ * <p>In parallel mode, syntax checkers are invoked concurrently; see {@link
+ * SyntaxChecker}.</p>
+ *
+ * <p>Finally, a {@link SyntaxResultCache} can be used, in which case the
+ * results of checking each subschema (including the schema itself) are
+ * cached; when a subschema with the same contents is met again, its messages
+ * are replayed instead of checking it again. As with parallel checking, if
+ * the report is configured to throw an exception, this exception is thrown
+ * only when the messages of the subschema are merged into the report.</p>
+ *
+ * <p>When editing schemas, {@link #check(ProcessingReport, SchemaTree)} and
+ * {@link #recheck(ProcessingReport, SyntaxSnapshot, SchemaTree, Iterable)}
+ * can be used instead of {@link #rawProcess(ProcessingReport, SchemaTree)}:
+ * after an edit, only the subschemas affected by the edit are checked again.
+ * </p>
+ *
+ * <p>Very large schemas can be checked as they are read from a {@link
+ * JsonParser}, see {@link #checkStream(ProcessingReport, SchemaKey,
+ * JsonParser, int)}.</p>
  */
 public final class SyntaxProcessor
     extends RawProcessor<SchemaTree, SchemaTree>
 {
+    private static final MessageBundle CORE_BUNDLE
+        = MessageBundles.getBundle(JsonSchemaCoreMessageBundle.class);
+
+    /**
+     * Default maximum depth (no limit)
+     */
+    public static final int DEFAULT_MAX_DEPTH = Integer.MAX_VALUE;
+
     private final MessageBundle bundle;
-    private final Map<String, SyntaxChecker> checkers;
+
+    /**
+     * Syntax checkers, in keyword order
+     */
+    private final SyntaxChecker[] checkers;
+
+    /**
+     * Index of each keyword in {@link #checkers}
+     */
+    private final Map<String, Integer> indices;
+
+    /**
+     * Maximum depth of subschemas
+     */
+    private final int maxDepth;
+
+    /**
+     * Pool for parallel checking, null if checking is sequential
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Minimum number of subschemas to check them in parallel
+     */
+    private final int parallelThreshold;
+
+    /**
+     * Dictionary of syntax checkers (used as a part of cache keys)
+     */
+    private final Dictionary<SyntaxChecker> dict;
+
+    /**
+     * Result cache, null if results are not cached
+     */
+    private final SyntaxResultCache cache;
 
     /**
      * Constructor
@@ -56,10 +154,120 @@ public final class SyntaxProcessor
      */
     public SyntaxProcessor(final MessageBundle bundle,
         final Dictionary<SyntaxChecker> dict)
+    {
+        this(bundle, dict, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Constructor with a maximum depth
+     *
+     * <p>The depth of the schema itself is 0, the depth of its immediate
+     * subschemas is 1, and so on.</p>
+     *
+     * @param bundle message bundle used by this syntax checker
+     * @param dict dictionary of syntax checkers
+     * @param maxDepth the maximum depth of subschemas
+     * @throws IllegalArgumentException maximum depth is not strictly positive
+     */
+    public SyntaxProcessor(final MessageBundle bundle,
+        final Dictionary<SyntaxChecker> dict, final int maxDepth)
+    {
+        this(null, Integer.MAX_VALUE, null, bundle, dict, maxDepth);
+    }
+
+    /**
+     * Constructor with a result cache
+     *
+     * @param bundle message bundle used by this syntax checker
+     * @param dict dictionary of syntax checkers
+     * @param maxDepth the maximum depth of subschemas
+     * @param cache the result cache
+     * @throws NullPointerException cache is null
+     * @throws IllegalArgumentException maximum depth is not strictly positive
+     */
+    public SyntaxProcessor(final MessageBundle bundle,
+        final Dictionary<SyntaxChecker> dict, final int maxDepth,
+        final SyntaxResultCache cache)
+    {
+        this(null, Integer.MAX_VALUE,
+            CORE_BUNDLE.checkNotNull(cache, "processing.nullCache"), bundle,
+            dict, maxDepth);
+    }
+
+    /**
+     * Constructor for parallel syntax checking
+     *
+     * @param bundle message bundle used by this syntax checker
+     * @param dict dictionary of syntax checkers
+     * @param maxDepth the maximum depth of subschemas
+     * @param pool the pool to run tasks into
+     * @param parallelThreshold the minimum number of subschemas of a schema
+     * for them to be checked in parallel
+     * @throws NullPointerException pool is null
+     * @throws IllegalArgumentException maximum depth or parallel threshold is
+     * not strictly positive
+     */
+    public SyntaxProcessor(final MessageBundle bundle,
+        final Dictionary<SyntaxChecker> dict, final int maxDepth,
+        final ForkJoinPool pool, final int parallelThreshold)
+    {
+        this(CORE_BUNDLE.checkNotNull(pool, "processing.nullPool"),
+            parallelThreshold, null, bundle, dict, maxDepth);
+    }
+
+    /**
+     * Constructor for parallel syntax checking with a result cache
+     *
+     * @param bundle message bundle used by this syntax checker
+     * @param dict dictionary of syntax checkers
+     * @param maxDepth the maximum depth of subschemas
+     * @param pool the pool to run tasks into
+     * @param parallelThreshold the minimum number of subschemas of a schema
+     * for them to be checked in parallel
+     * @param cache the result cache
+     * @throws NullPointerException pool or cache is null
+     * @throws IllegalArgumentException maximum depth or parallel threshold is
+     * not strictly positive
+     */
+    public SyntaxProcessor(final MessageBundle bundle,
+        final Dictionary<SyntaxChecker> dict, final int maxDepth,
+        final ForkJoinPool pool, final int parallelThreshold,
+        final SyntaxResultCache cache)
+    {
+        this(CORE_BUNDLE.checkNotNull(pool, "processing.nullPool"),
+            parallelThreshold,
+            CORE_BUNDLE.checkNotNull(cache, "processing.nullCache"), bundle,
+            dict, maxDepth);
+    }
+
+    private SyntaxProcessor(final ForkJoinPool pool,
+        final int parallelThreshold, final SyntaxResultCache cache,
+        final MessageBundle bundle, final Dictionary<SyntaxChecker> dict,
+        final int maxDepth)
     {
         super("schema", "schema");
+        CORE_BUNDLE.checkArgument(maxDepth > 0, "processing.invalidMaxDepth");
+        CORE_BUNDLE.checkArgument(parallelThreshold > 0,
+            "processing.invalidParallelThreshold");
         this.bundle = bundle;
-        checkers = dict.entries();
+        this.maxDepth = maxDepth;
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        this.dict = dict;
+        this.cache = cache;
+
+        final SortedMap<String, SyntaxChecker> map = Maps.newTreeMap();
+        map.putAll(dict.entries());
+        final ImmutableMap.Builder<String, Integer> builder
+            = ImmutableMap.builder();
+
+        checkers = new SyntaxChecker[map.size()];
+        int index = 0;
+        for (final Map.Entry<String, SyntaxChecker> entry: map.entrySet()) {
+            builder.put(entry.getKey(), index);
+            checkers[index++] = entry.getValue();
+        }
+        indices = builder.build();
     }
 
     @Override
@@ -67,11 +275,461 @@ public final class SyntaxProcessor
         final SchemaTree input)
         throws ProcessingException
     {
-        validate(report, input);
+        validate(report, input, 0);
         return input;
     }
 
-    private void validate(final ProcessingReport report, final SchemaTree tree)
+    /**
+     * Check a schema read from a JSON parser, without building it in memory
+     *
+     * <p>This calls {@link #checkStream(ProcessingReport, SchemaKey,
+     * JsonParser, int)} with no limit on the number of JSON values in keyword
+     * values.</p>
+     *
+     * @param report the report
+     * @param key the key of the schema
+     * @param parser the parser
+     * @throws IOException failed to read from the parser
+     * @throws ProcessingException the report throws an exception
+     */
+    public void checkStream(final ProcessingReport report, final SchemaKey key,
+        final JsonParser parser)
+        throws IOException, ProcessingException
+    {
+        checkStream(report, key, parser, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Check a schema read from a JSON parser, without building it in memory
+     *
+     * <p>The parser is read up to the end of the first JSON value (or from
+     * the current token, if any). Subschemas are checked as they are read;
+     * apart from subschemas, only the values of the keywords of the schemas
+     * being read are kept in memory.</p>
+     *
+     * <p>The report receives the same messages as when checking the schema
+     * with {@link #rawProcess(ProcessingReport, SchemaTree)}, but not in the
+     * same order: the messages for a subschema come before the messages for
+     * the schema containing it. The pool and the result cache of this
+     * processor, if any, are only used for subschemas which could not be
+     * checked while being read (subschemas within a keyword value which is
+     * itself not a schema, such as hyper-schema links).</p>
+     *
+     * <p>In order to bound memory use, a maximum number of JSON values can be
+     * set for the value of a single keyword (not counting the contents of its
+     * subschemas); a keyword whose value is larger than this is reported as
+     * an error, and is not checked.</p>
+     *
+     * @param report the report
+     * @param key the key of the schema
+     * @param parser the parser
+     * @param maxValues the maximum number of JSON values in a keyword value
+     * @throws IOException failed to read from the parser
+     * @throws ProcessingException the report throws an exception
+     * @throws IllegalArgumentException maximum number of values is not
+     * strictly positive
+     */
+    public void checkStream(final ProcessingReport report, final SchemaKey key,
+        final JsonParser parser, final int maxValues)
+        throws IOException, ProcessingException
+    {
+        CORE_BUNDLE.checkArgument(maxValues > 0, "processing.invalidMaxValues");
+        new SyntaxStream(this, report, key, parser, maxValues).run();
+    }
+
+    /**
+     * Check a schema, and return a snapshot of the result
+     *
+     * <p>The report receives the same messages as with {@link
+     * #rawProcess(ProcessingReport, SchemaTree)}. The returned snapshot can be
+     * used to check the schema again after it has been edited, see {@link
+     * #recheck(ProcessingReport, SyntaxSnapshot, SchemaTree, Iterable)}.</p>
+     *
+     * <p>Note that the pool and the result cache of this processor, if any,
+     * are not used.</p>
+     *
+     * @param report the report
+     * @param tree the schema
+     * @return a snapshot of the result
+     * @throws ProcessingException the report throws an exception
+     */
+    public SyntaxSnapshot check(final ProcessingReport report,
+        final SchemaTree tree)
+        throws ProcessingException
+    {
+        return snapshot(report, tree, null, null);
+    }
+
+    /**
+     * Check an edited schema, reusing the result of a previous check
+     *
+     * <p>Only the subschemas affected by the edit are checked again: those
+     * located at, below or above one of the changed pointers. Messages for
+     * all other subschemas are taken from the previous snapshot. Pointers are
+     * relative to the base node of the schema (see {@link
+     * SchemaTree#getBaseNode()}). Note that if an array has been modified so
+     * that the indices of its elements have changed, the pointer of the array
+     * itself must be given.</p>
+     *
+     * <p>The report receives the same messages as when checking the edited
+     * schema with {@link #rawProcess(ProcessingReport, SchemaTree)}. If the
+     * previous snapshot was not produced by this processor, or is for another
+     * document, the edited schema is checked entirely.</p>
+     *
+     * @param report the report
+     * @param previous the snapshot of the schema before the edit
+     * @param tree the edited schema
+     * @param changed the pointers of the changed values
+     * @return a snapshot of the result
+     * @throws ProcessingException the report throws an exception
+     * @throws NullPointerException previous snapshot is null
+     */
+    public SyntaxSnapshot recheck(final ProcessingReport report,
+        final SyntaxSnapshot previous, final SchemaTree tree,
+        final Iterable<JsonPointer> changed)
+        throws ProcessingException
+    {
+        CORE_BUNDLE.checkNotNull(previous, "processing.nullSnapshot");
+        if (previous.processor != this || !previous.tree.getLoadingRef()
+            .equals(tree.getLoadingRef()))
+            return snapshot(report, tree, null, null);
+
+        final List<String> pointers = Lists.newArrayList();
+        for (final JsonPointer pointer: changed)
+            pointers.add(pointer.toString());
+        return snapshot(report, tree, previous.root, pointers);
+    }
+
+    /**
+     * Check an edited schema, reusing the result of a previous check
+     *
+     * <p>This is the same as {@link #recheck(ProcessingReport, SyntaxSnapshot,
+     * SchemaTree, Iterable)}, except that the changes are given as the JSON
+     * Patch (RFC 6902) which was applied to the base node of the schema. The
+     * patch is not applied by this method; the tree must be the result of
+     * applying it.</p>
+     *
+     * @param report the report
+     * @param previous the snapshot of the schema before the edit
+     * @param tree the edited schema
+     * @param patch the JSON Patch
+     * @return a snapshot of the result
+     * @throws ProcessingException the report throws an exception
+     * @throws NullPointerException previous snapshot is null
+     * @throws IllegalArgumentException patch is not a valid JSON Patch
+     */
+    public SyntaxSnapshot recheck(final ProcessingReport report,
+        final SyntaxSnapshot previous, final SchemaTree tree,
+        final JsonNode patch)
+        throws ProcessingException
+    {
+        return recheck(report, previous, tree,
+            changedPointers(tree.getBaseNode(), patch));
+    }
+
+    /*
+     * Changed pointers are null if all subschemas are to be checked
+     */
+    private SyntaxSnapshot snapshot(final ProcessingReport report,
+        final SchemaTree tree, final SyntaxSnapshot.Node previous,
+        final List<String> changed)
+        throws ProcessingException
+    {
+        if (previous != null && !affected(tree.getPointer(), changed)) {
+            previous.replay(report);
+            return new SyntaxSnapshot(this, tree, previous);
+        }
+
+        final Deque<Snapshot> stack = new ArrayDeque<>();
+        stack.push(newSnapshot(report, tree, 0, previous));
+
+        Snapshot snapshot;
+        SchemaTree subtree;
+        SyntaxSnapshot.Node node;
+
+        while (true) {
+            snapshot = stack.peek();
+
+            if (snapshot.next < snapshot.pointers.size()) {
+                subtree = snapshot.tree.append(
+                    snapshot.pointers.get(snapshot.next++));
+                node = snapshot.previous.get(subtree.getPointer());
+                if (node != null && !affected(subtree.getPointer(), changed)) {
+                    node.replay(report);
+                    snapshot.children.add(node);
+                } else
+                    stack.push(newSnapshot(report, subtree,
+                        snapshot.depth + 1, node));
+                continue;
+            }
+
+            stack.pop();
+            node = new SyntaxSnapshot.Node(snapshot.tree.getPointer(),
+                snapshot.messages, snapshot.children.build());
+            if (stack.isEmpty())
+                return new SyntaxSnapshot(this, tree, node);
+            stack.peek().children.add(node);
+        }
+    }
+
+    private Snapshot newSnapshot(final ProcessingReport report,
+        final SchemaTree tree, final int depth,
+        final SyntaxSnapshot.Node previous)
+        throws ProcessingException
+    {
+        final ListProcessingReport capture
+            = new ListProcessingReport(LogLevel.DEBUG, LogLevel.NONE);
+        final List<JsonPointer> pointers = Lists.newArrayList();
+
+        if (depth > maxDepth)
+            capture.error(newMsg(tree, "core.maxDepthExceeded")
+                .putArgument("maxDepth", maxDepth));
+        else
+            validateOne(capture, tree, pointers);
+
+        final ImmutableList.Builder<ProcessingMessage> messages
+            = ImmutableList.builder();
+        for (final ProcessingMessage message: capture)
+            messages.add(message.copy());
+
+        report.mergeWith(capture);
+
+        final Map<JsonPointer, SyntaxSnapshot.Node> map = Maps.newHashMap();
+        if (previous != null)
+            for (final SyntaxSnapshot.Node child: previous.children)
+                map.put(child.pointer, child);
+
+        return new Snapshot(tree, depth, messages.build(), pointers, map);
+    }
+
+    /*
+     * A subschema is affected if it contains, or is contained in, a changed
+     * value
+     */
+    private static boolean affected(final JsonPointer pointer,
+        final List<String> changed)
+    {
+        if (changed == null)
+            return true;
+
+        final String s = pointer.toString();
+        for (final String other: changed)
+            if (isPrefix(s, other) || isPrefix(other, s))
+                return true;
+        return false;
+    }
+
+    private static boolean isPrefix(final String prefix, final String pointer)
+    {
+        return pointer.startsWith(prefix)
+            && (pointer.length() == prefix.length()
+            || pointer.charAt(prefix.length()) == '/');
+    }
+
+    /*
+     * Values added to, or removed from, an array shift the indices of the
+     * elements after them: in this case the array itself is changed
+     */
+    private static List<JsonPointer> changedPointers(final JsonNode base,
+        final JsonNode patch)
+    {
+        CORE_BUNDLE.checkArgument(patch != null && patch.isArray(),
+            "processing.invalidPatch");
+
+        final List<JsonPointer> changed = Lists.newArrayList();
+
+        String op;
+
+        for (final JsonNode operation: patch) {
+            op = operation.path("op").asText();
+            switch (op) {
+                case "test":
+                    break;
+                case "replace":
+                    changed.add(pointer(operation, "path"));
+                    break;
+                case "move":
+                    changed.add(container(base, pointer(operation, "from")));
+                    changed.add(container(base, pointer(operation, "path")));
+                    break;
+                default:
+                    changed.add(container(base, pointer(operation, "path")));
+            }
+        }
+
+        return changed;
+    }
+
+    private static JsonPointer pointer(final JsonNode operation,
+        final String name)
+    {
+        final JsonNode node = operation.get(name);
+        CORE_BUNDLE.checkArgument(node != null && node.isTextual(),
+            "processing.invalidPatch");
+        try {
+            return new JsonPointer(node.textValue());
+        } catch (JsonPointerException ignored) {
+            throw new IllegalArgumentException(
+                CORE_BUNDLE.getMessage("processing.invalidPatch"));
+        }
+    }
+
+    private static JsonPointer container(final JsonNode base,
+        final JsonPointer pointer)
+    {
+        final JsonPointer parent = pointer.parent();
+        return parent.path(base).isArray() ? parent : pointer;
+    }
+
+    /*
+     * Returns the depth of the deepest subschema visited
+     */
+    int validate(final ProcessingReport report, final SchemaTree tree,
+        final int startDepth)
+        throws ProcessingException
+    {
+        return validate(report, tree, startDepth, cache == null ? null
+            : SyntaxResultCache.index(tree.getNode()));
+    }
+
+    /*
+     * The index covers all subschemas of the tree, it is shared with tasks
+     * checking subschemas in parallel
+     */
+    private int validate(final ProcessingReport report, final SchemaTree tree,
+        final int startDepth, final SyntaxResultCache.NodeIndex index)
+        throws ProcessingException
+    {
+        final Deque<Subschema> stack = new ArrayDeque<>();
+        final Deque<Capture> captures = new ArrayDeque<>();
+        final List<JsonPointer> pointers = Lists.newArrayList();
+
+        stack.push(new Subschema(tree, startDepth, null));
+
+        ProcessingReport current = report;
+        Subschema subschema;
+        Capture capture;
+        SyntaxResultCache.Key key;
+        SyntaxResult result;
+        int depth;
+        int reached = startDepth;
+
+        while (!stack.isEmpty()) {
+            subschema = stack.pop();
+            depth = subschema.depth;
+
+            /*
+             * End of a subschema whose result is to be cached: store it, and
+             * merge its messages into the enclosing report
+             */
+            if (subschema.capture != null) {
+                capture = captures.pop();
+                if (capture.reached <= maxDepth) {
+                    result = SyntaxResult.of(capture.tree,
+                        capture.reached - depth, capture.report);
+                    if (result != null)
+                        cache.put(capture.key, result);
+                }
+                current = captures.isEmpty() ? report
+                    : captures.peek().report;
+                current.mergeWith(capture.report);
+                if (!captures.isEmpty())
+                    captures.peek().reach(capture.reached);
+                continue;
+            }
+
+            reached = Math.max(reached, depth);
+            if (!captures.isEmpty())
+                captures.peek().reach(depth);
+
+            if (depth > maxDepth) {
+                current.error(newMsg(subschema.tree, "core.maxDepthExceeded")
+                    .putArgument("maxDepth", maxDepth));
+                continue;
+            }
+
+            if (cache != null) {
+                key = SyntaxResultCache.key(dict, bundle, index,
+                    subschema.tree.getNode());
+                result = cache.get(key);
+                if (result != null
+                    && depth + result.getHeight() <= maxDepth) {
+                    result.replay(current, subschema.tree);
+                    reached = Math.max(reached, depth + result.getHeight());
+                    if (!captures.isEmpty())
+                        captures.peek().reach(depth + result.getHeight());
+                    continue;
+                }
+                capture = new Capture(subschema.tree, key, depth);
+                captures.push(capture);
+                stack.push(new Subschema(subschema.tree, depth, capture));
+                current = capture.report;
+            }
+
+            pointers.clear();
+            validateOne(current, subschema.tree, pointers);
+
+            if (pool != null && pointers.size() >= parallelThreshold) {
+                depth = validateParallel(current, subschema.tree, pointers,
+                    depth + 1, index);
+                reached = Math.max(reached, depth);
+                if (!captures.isEmpty())
+                    captures.peek().reach(depth);
+                continue;
+            }
+
+            /*
+             * Push subschemas in reverse order, so that they are visited in
+             * the order they were collected in
+             */
+            for (int i = pointers.size() - 1; i >= 0; i--)
+                stack.push(new Subschema(subschema.tree.append(pointers.get(i)),
+                    depth + 1, null));
+        }
+
+        return reached;
+    }
+
+    /*
+     * Returns the depth of the deepest subschema visited
+     */
+    private int validateParallel(final ProcessingReport report,
+        final SchemaTree tree, final List<JsonPointer> pointers,
+        final int depth, final SyntaxResultCache.NodeIndex index)
+        throws ProcessingException
+    {
+        final List<SubschemaTask> tasks
+            = Lists.newArrayListWithCapacity(pointers.size());
+
+        for (final JsonPointer pointer: pointers)
+            tasks.add(new SubschemaTask(report.getLogLevel(),
+                tree.append(pointer), depth, index));
+
+        /*
+         * Only fork tasks when already running in the configured pool: a
+         * worker thread of another pool would fork them into that pool
+         */
+        if (ForkJoinTask.getPool() == pool)
+            ForkJoinTask.invokeAll(tasks);
+        else
+            for (final SubschemaTask task: tasks)
+                pool.execute(task);
+
+        int reached = depth;
+
+        for (final SubschemaTask task: tasks) {
+            task.join();
+            report.mergeWith(task.report);
+            if (task.exception != null)
+                throw task.exception;
+            reached = Math.max(reached, task.reached);
+        }
+
+        return reached;
+    }
+
+    void validateOne(final ProcessingReport report,
+        final SchemaTree tree, final List<JsonPointer> pointers)
         throws ProcessingException
     {
         final JsonNode node = tree.getNode();
@@ -87,47 +745,177 @@ public final class SyntaxProcessor
         }
 
         /*
-         * Grab all checkers and object member names. Retain in checkers only
-         * existing keywords, and remove from the member names set what is in
-         * the checkers' key set: if non empty, some keywords are missing,
+         * Look up all object member names: mark the ones which are known
+         * keywords, collect the others. If some members are not keywords,
          * report them.
          */
-        final Map<String, SyntaxChecker> map = Maps.newTreeMap();
-        map.putAll(checkers);
+        final BitSet present = new BitSet(checkers.length);
+        List<String> unknown = null;
 
-        final Set<String> fields = Sets.newHashSet(node.fieldNames());
-        map.keySet().retainAll(fields);
-        fields.removeAll(map.keySet());
+        final Iterator<String> fields = node.fieldNames();
+        String field;
+        Integer index;
 
-        if (!fields.isEmpty())
-            report.warn(newMsg(tree, "core.unknownKeywords")
-                .putArgument("ignored", Ordering.natural().sortedCopy(fields)));
+        while (fields.hasNext()) {
+            field = fields.next();
+            index = indices.get(field);
+            if (index != null) {
+                present.set(index);
+                continue;
+            }
+            if (unknown == null)
+                unknown = Lists.newArrayList();
+            unknown.add(field);
+        }
 
-        /*
-         * Now, check syntax of each keyword, and collect pointers for further
-         * analysis.
-         */
-        final List<JsonPointer> pointers = Lists.newArrayList();
-        for (final SyntaxChecker checker: map.values())
-            checker.checkSyntax(pointers, bundle, report, tree);
+        if (unknown != null) {
+            Collections.sort(unknown);
+            report.warn(newMsg(tree, "core.unknownKeywords")
+                .putArgument("ignored", unknown));
+        }
 
         /*
-         * Operate on these pointers.
+         * Now, check syntax of each keyword, in keyword order, and collect
+         * pointers for further analysis.
          */
-        for (final JsonPointer pointer: pointers)
-            validate(report, tree.append(pointer));
+        for (int i = present.nextSetBit(0); i >= 0;
+            i = present.nextSetBit(i + 1))
+            checkers[i].checkSyntax(pointers, bundle, report, tree);
     }
 
-    private ProcessingMessage newMsg(final SchemaTree tree, final String key)
+    ProcessingMessage newMsg(final SchemaTree tree, final String key)
     {
         return new ProcessingMessage().put("schema", tree)
             .put("domain", "syntax").setMessage(bundle.getMessage(key));
 
     }
 
+    MessageBundle getBundle()
+    {
+        return bundle;
+    }
+
+    int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    /*
+     * Returns null if the keyword is unknown
+     */
+    SyntaxChecker getChecker(final String keyword)
+    {
+        final Integer index = indices.get(keyword);
+        return index == null ? null : checkers[index];
+    }
+
     @Override
     public String toString()
     {
         return "syntax checker";
     }
+
+    /*
+     * A subschema to check, or the end of a subschema whose result is to be
+     * cached (in which case capture is not null)
+     */
+    private static final class Subschema
+    {
+        private final SchemaTree tree;
+        private final int depth;
+        private final Capture capture;
+
+        private Subschema(final SchemaTree tree, final int depth,
+            final Capture capture)
+        {
+            this.tree = tree;
+            this.depth = depth;
+            this.capture = capture;
+        }
+    }
+
+    /*
+     * Messages and depth reached for a subschema whose result is to be cached
+     */
+    private static final class Capture
+    {
+        private final SchemaTree tree;
+        private final SyntaxResultCache.Key key;
+        private final ListProcessingReport report
+            = new ListProcessingReport(LogLevel.DEBUG, LogLevel.NONE);
+        private int reached;
+
+        private Capture(final SchemaTree tree, final SyntaxResultCache.Key key,
+            final int depth)
+        {
+            this.tree = tree;
+            this.key = key;
+            reached = depth;
+        }
+
+        private void reach(final int depth)
+        {
+            reached = Math.max(reached, depth);
+        }
+    }
+
+    /*
+     * A subschema being checked by snapshot(), along with the results of the
+     * previous check of this subschema, if any
+     */
+    private static final class Snapshot
+    {
+        private final SchemaTree tree;
+        private final int depth;
+        private final ImmutableList<ProcessingMessage> messages;
+        private final List<JsonPointer> pointers;
+        private final Map<JsonPointer, SyntaxSnapshot.Node> previous;
+        private final ImmutableList.Builder<SyntaxSnapshot.Node> children
+            = ImmutableList.builder();
+        private int next;
+
+        private Snapshot(final SchemaTree tree, final int depth,
+            final ImmutableList<ProcessingMessage> messages,
+            final List<JsonPointer> pointers,
+            final Map<JsonPointer, SyntaxSnapshot.Node> previous)
+        {
+            this.tree = tree;
+            this.depth = depth;
+            this.messages = messages;
+            this.pointers = pointers;
+            this.previous = previous;
+        }
+    }
+
+    private final class SubschemaTask
+        extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ListProcessingReport report;
+        private final transient SchemaTree tree;
+        private final int depth;
+        private final transient SyntaxResultCache.NodeIndex index;
+        private transient ProcessingException exception;
+        private int reached;
+
+        private SubschemaTask(final LogLevel logLevel, final SchemaTree tree,
+            final int depth, final SyntaxResultCache.NodeIndex index)
+        {
+            report = new ListProcessingReport(logLevel, LogLevel.NONE);
+            this.tree = tree;
+            this.depth = depth;
+            this.index = index;
+        }
+
+        @Override
+        protected void compute()
+        {
+            try {
+                reached = validate(report, tree, depth, index);
+            } catch (ProcessingException e) {
+                exception = e;
+            }
+        }
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.keyword.syntax;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of syntax checking a subschema and all of its subschemas
+ *
+ * <p>Messages are stored with their {@code schema} pointer relative to the
+ * subschema; when the result is replayed for another subschema, they are
+ * rebased onto this subschema.</p>
+ *
+ * @see SyntaxResultCache
+ */
+@Immutable
+final class SyntaxResult
+{
+    private static final String SCHEMA = "schema";
+    private static final String LOADING_URI = "loadingURI";
+    private static final String POINTER = "pointer";
+
+    /**
+     * Depth of the deepest subschema, relative to the subschema
+     */
+    private final int height;
+
+    private final ImmutableList<ProcessingMessage> messages;
+
+    /**
+     * Relative pointers of messages, null if the message has no schema
+     */
+    private final List<String> pointers;
+
+    private SyntaxResult(final int height,
+        final ImmutableList<ProcessingMessage> messages,
+        final List<String> pointers)
+    {
+        this.height = height;
+        this.messages = messages;
+        this.pointers = pointers;
+    }
+
+    /**
+     * Build a result from the messages collected for a subschema
+     *
+     * @param tree the subschema
+     * @param height the depth of the deepest subschema, relative to tree
+     * @param collected the messages
+     * @return a result, or null if a message refers to a schema which is not
+     * in the subschema
+     */
+    static SyntaxResult of(final SchemaTree tree, final int height,
+        final Iterable<ProcessingMessage> collected)
+    {
+        final JsonNode base = tree.asJson();
+        final String loadingURI = base.get(LOADING_URI).textValue();
+        final String pointer = base.get(POINTER).textValue();
+        final ImmutableList.Builder<ProcessingMessage> messages
+            = ImmutableList.builder();
+        /*
+         * Guava's immutable collections don't allow null elements
+         */
+        final List<String> pointers = Lists.newArrayList();
+
+        JsonNode schema;
+        String relative;
+
+        for (final ProcessingMessage message: collected) {
+            schema = message.asJson().get(SCHEMA);
+            relative = null;
+            if (schema != null) {
+                if (!loadingURI.equals(schema.path(LOADING_URI).textValue()))
+                    return null;
+                relative = relativePointer(pointer,
+                    schema.path(POINTER).textValue());
+                if (relative == null)
+                    return null;
+            }
+            messages.add(message.copy());
+            pointers.add(relative);
+        }
+
+        return new SyntaxResult(height, messages.build(),
+            Collections.unmodifiableList(pointers));
+    }
+
+    int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Replay the messages of this result for a subschema
+     *
+     * @param report the report to replay messages into
+     * @param tree the subschema
+     * @throws ProcessingException the report throws an exception on one of
+     * the messages
+     */
+    void replay(final ProcessingReport report, final SchemaTree tree)
+        throws ProcessingException
+    {
+        final JsonNode base = tree.asJson();
+        final String pointer = base.get(POINTER).textValue();
+        final int size = messages.size();
+
+        ProcessingMessage message;
+        String relative;
+        ObjectNode schema;
+
+        for (int i = 0; i < size; i++) {
+            message = messages.get(i).copy();
+            relative = pointers.get(i);
+            if (relative != null) {
+                schema = base.deepCopy();
+                schema.put(POINTER, pointer + relative);
+                message.put(SCHEMA, schema);
+            }
+            log(report, message);
+        }
+    }
+
+    static void log(final ProcessingReport report,
+        final ProcessingMessage message)
+        throws ProcessingException
+    {
+        switch (message.getLogLevel()) {
+            case DEBUG:
+                report.debug(message);
+                break;
+            case INFO:
+                report.info(message);
+                break;
+            case WARNING:
+                report.warn(message);
+                break;
+            case ERROR:
+                report.error(message);
+                break;
+            default:
+                report.fatal(message);
+        }
+    }
+
+    private static String relativePointer(final String base,
+        final String pointer)
+    {
+        if (pointer == null || !pointer.startsWith(base))
+            return null;
+        final String relative = pointer.substring(base.length());
+        return relative.isEmpty() || relative.charAt(0) == '/' ? relative
+            : null;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.keyword.syntax;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jsonschema.core.keyword.syntax.checkers.SyntaxChecker;
+import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
+import com.github.fge.jsonschema.core.util.Dictionary;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Lists;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache of syntax checking results, shared by {@link SyntaxProcessor}s
+ *
+ * <p>Results are cached per subschema, and keyed by the subschema's contents
+ * (using {@link JsonNode#equals(Object)}), the dictionary of syntax checkers
+ * and the message bundle used by the processor. Messages are stored relative
+ * to the subschema, so that a result can be reused for the same subschema at
+ * another location, or in another schema altogether.</p>
+ *
+ * <p>As with {@link
+ * com.github.fge.jsonschema.core.processing.CachingProcessor}, the cache size
+ * can be set; zero disables the cache, and -1 makes it unbounded.</p>
+ *
+ * @see SyntaxProcessor#SyntaxProcessor(MessageBundle, Dictionary, int,
+ * SyntaxResultCache)
+ */
+@ThreadSafe
+public final class SyntaxResultCache
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaCoreMessageBundle.class);
+
+    private static final int DEFAULT_CACHE_SIZE = 512;
+
+    private final Cache<Key, SyntaxResult> cache;
+
+    /**
+     * Constructor with the default cache size (512)
+     */
+    public SyntaxResultCache()
+    {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Main constructor
+     *
+     * @param cacheSize the size of the cache, zero disables it
+     * @throws IllegalArgumentException cache size is lower than -1
+     */
+    public SyntaxResultCache(final int cacheSize)
+    {
+        BUNDLE.checkArgument(cacheSize >= -1, "processing.invalidCacheSize");
+        final CacheBuilder<Object, Object> builder
+            = CacheBuilder.newBuilder().recordStats();
+        if (cacheSize != -1)
+            builder.maximumSize(cacheSize);
+        cache = builder.build();
+    }
+
+    /**
+     * Return statistics of this cache
+     *
+     * @return the cache statistics
+     */
+    public CacheStats getStats()
+    {
+        return cache.stats();
+    }
+
+    /**
+     * Remove all results from this cache
+     */
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Index the subschemas of a schema being checked
+     *
+     * <p>Keys for all subschemas of a same schema are computed from the
+     * index, so that hashes are computed once per schema, and stored keys all
+     * share one copy of the schema.</p>
+     *
+     * @param root the schema
+     * @return an index
+     */
+    static NodeIndex index(final JsonNode root)
+    {
+        return new NodeIndex(root);
+    }
+
+    static Key key(final Dictionary<SyntaxChecker> dict,
+        final MessageBundle bundle, final NodeIndex index, final JsonNode node)
+    {
+        return new Key(dict, bundle, node, 31 * (31
+            * System.identityHashCode(dict) + System.identityHashCode(bundle))
+            + index.hash(node), index);
+    }
+
+    SyntaxResult get(final Key key)
+    {
+        return cache.getIfPresent(key);
+    }
+
+    void put(final Key key, final SyntaxResult result)
+    {
+        /*
+         * Schemas may be mutated by their owners after the fact, so we store
+         * a copy of the node; the index makes one copy per schema, and hands
+         * out its subtrees.
+         */
+        cache.put(new Key(key.dict, key.bundle, key.index.copyOf(key.node),
+            key.hashCode, null), result);
+    }
+
+    /*
+     * Structural hashes of all container nodes of a schema, computed bottom
+     * up in one pass, and a lazily built copy of the schema
+     *
+     * Nodes are looked up by identity. Hashes are consistent with
+     * JsonNode.equals(): member order does not matter for objects.
+     */
+    static final class NodeIndex
+    {
+        private final List<JsonNode> containers;
+        private final Map<JsonNode, Integer> hashes = new IdentityHashMap<>();
+        private Map<JsonNode, JsonNode> copies;
+
+        private NodeIndex(final JsonNode root)
+        {
+            containers = postOrder(root);
+
+            int hash;
+
+            for (final JsonNode node: containers) {
+                if (node.isObject()) {
+                    hash = 0;
+                    final Iterator<Map.Entry<String, JsonNode>> fields
+                        = node.fields();
+                    Map.Entry<String, JsonNode> entry;
+                    while (fields.hasNext()) {
+                        entry = fields.next();
+                        hash += entry.getKey().hashCode()
+                            ^ hashOf(entry.getValue());
+                    }
+                    hash = 31 * hash + 1;
+                } else {
+                    hash = 2;
+                    for (final JsonNode element: node)
+                        hash = 31 * hash + hashOf(element);
+                }
+                hashes.put(node, hash);
+            }
+        }
+
+        int hash(final JsonNode node)
+        {
+            final Integer ret = hashes.get(node);
+            if (ret != null)
+                return ret;
+            return node.isContainerNode() ? new NodeIndex(node).hash(node)
+                : node.hashCode();
+        }
+
+        synchronized JsonNode copyOf(final JsonNode node)
+        {
+            if (!node.isContainerNode())
+                return node;
+
+            if (copies == null) {
+                copies = new IdentityHashMap<>(hashes.size());
+                for (final JsonNode container: containers)
+                    copies.put(container, copy(container));
+            }
+
+            final JsonNode ret = copies.get(node);
+            return ret != null ? ret : node.deepCopy();
+        }
+
+        private int hashOf(final JsonNode node)
+        {
+            return node.isContainerNode() ? hashes.get(node) : node.hashCode();
+        }
+
+        /*
+         * Containers are copied after their children, and scalar nodes are
+         * immutable, so they are not copied
+         */
+        private JsonNode copy(final JsonNode node)
+        {
+            if (node.isObject()) {
+                final ObjectNode ret = ((ObjectNode) node).objectNode();
+                final Iterator<Map.Entry<String, JsonNode>> fields
+                    = node.fields();
+                Map.Entry<String, JsonNode> entry;
+                while (fields.hasNext()) {
+                    entry = fields.next();
+                    ret.set(entry.getKey(), copyOf(entry.getValue()));
+                }
+                return ret;
+            }
+
+            final ArrayNode ret = ((ArrayNode) node).arrayNode();
+            for (final JsonNode element: node)
+                ret.add(copyOf(element));
+            return ret;
+        }
+
+        /*
+         * Container nodes of a tree, children before their parents
+         */
+        private static List<JsonNode> postOrder(final JsonNode root)
+        {
+            final List<JsonNode> ret = Lists.newArrayList();
+
+            if (!root.isContainerNode())
+                return ret;
+
+            final Deque<JsonNode> stack = new ArrayDeque<>();
+            stack.push(root);
+
+            JsonNode node;
+
+            while (!stack.isEmpty()) {
+                node = stack.pop();
+                ret.add(node);
+                for (final JsonNode child: node)
+                    if (child.isContainerNode())
+                        stack.push(child);
+            }
+
+            return Lists.reverse(ret);
+        }
+    }
+
+    static final class Key
+    {
+        private final Dictionary<SyntaxChecker> dict;
+        private final MessageBundle bundle;
+        private final JsonNode node;
+        private final int hashCode;
+        /*
+         * Only set for lookup keys; stored keys do not retain the index
+         */
+        private final NodeIndex index;
+
+        private Key(final Dictionary<SyntaxChecker> dict,
+            final MessageBundle bundle, final JsonNode node,
+            final int hashCode, final NodeIndex index)
+        {
+            this.dict = dict;
+            this.bundle = bundle;
+            this.node = node;
+            this.hashCode = hashCode;
+            this.index = index;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (obj == null)
+                return false;
+            if (this == obj)
+                return true;
+            if (getClass() != obj.getClass())
+                return false;
+            final Key other = (Key) obj;
+            return dict == other.dict && bundle == other.bundle
+                && hashCode == other.hashCode && node.equals(other.node);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.keyword.syntax;
+
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The result of syntax checking a schema, subschema by subschema
+ *
+ * <p>A snapshot is produced by {@link SyntaxProcessor#check(ProcessingReport,
+ * SchemaTree)}, and can be handed back to {@link
+ * SyntaxProcessor#recheck(ProcessingReport, SyntaxSnapshot, SchemaTree,
+ * Iterable)} after the schema has been edited: subschemas which are not
+ * affected by the edit are not checked again, their messages are reused.</p>
+ *
+ * <p>Snapshots are immutable, and unaffected parts of a snapshot are shared
+ * with the snapshots derived from it.</p>
+ */
+@Immutable
+public final class SyntaxSnapshot
+{
+    final SyntaxProcessor processor;
+    final SchemaTree tree;
+    final Node root;
+
+    SyntaxSnapshot(final SyntaxProcessor processor, final SchemaTree tree,
+        final Node root)
+    {
+        this.processor = processor;
+        this.tree = tree;
+        this.root = root;
+    }
+
+    /**
+     * Return the schema this snapshot was taken of
+     *
+     * @return the schema
+     */
+    public SchemaTree getTree()
+    {
+        return tree;
+    }
+
+    /**
+     * Tell whether the schema is syntactically valid
+     *
+     * @return true if no message of level error or more was produced
+     */
+    public boolean isSuccess()
+    {
+        return root.level.compareTo(LogLevel.ERROR) < 0;
+    }
+
+    /**
+     * The result for one subschema
+     */
+    @Immutable
+    static final class Node
+    {
+        final JsonPointer pointer;
+
+        /**
+         * Messages produced when checking this subschema itself
+         */
+        final ImmutableList<ProcessingMessage> messages;
+
+        /**
+         * Results for subschemas, in the order they were collected in
+         */
+        final ImmutableList<Node> children;
+
+        /**
+         * Highest log level of all messages in this subtree
+         */
+        final LogLevel level;
+
+        /**
+         * Whether this subtree has no messages at all
+         */
+        final boolean clean;
+
+        Node(final JsonPointer pointer,
+            final ImmutableList<ProcessingMessage> messages,
+            final ImmutableList<Node> children)
+        {
+            this.pointer = pointer;
+            this.messages = messages;
+            this.children = children;
+
+            LogLevel max = LogLevel.DEBUG;
+            boolean empty = messages.isEmpty();
+            for (final ProcessingMessage message: messages)
+                if (message.getLogLevel().compareTo(max) > 0)
+                    max = message.getLogLevel();
+            for (final Node child: children) {
+                if (child.level.compareTo(max) > 0)
+                    max = child.level;
+                empty = empty && child.clean;
+            }
+            level = max;
+            clean = empty;
+        }
+
+        /**
+         * Replay all messages of this subtree, in order, into a report
+         *
+         * @param report the report
+         * @throws ProcessingException the report throws an exception on one
+         * of the messages
+         */
+        void replay(final ProcessingReport report)
+            throws ProcessingException
+        {
+            final Deque<Node> stack = new ArrayDeque<>();
+            stack.push(this);
+
+            Node node;
+
+            while (!stack.isEmpty()) {
+                node = stack.pop();
+                if (node.clean)
+                    continue;
+                for (final ProcessingMessage message: node.messages)
+                    SyntaxResult.log(report, message.copy());
+                for (int i = node.children.size() - 1; i >= 0; i--)
+                    stack.push(node.children.get(i));
+            }
+        }
+    }
+}
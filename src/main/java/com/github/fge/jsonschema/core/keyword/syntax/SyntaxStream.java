@@ -0,0 +1,569 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.keyword.syntax;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.keyword.syntax.checkers.SyntaxChecker;
+import com.github.fge.jsonschema.core.report.DevNullProcessingReport;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.core.tree.CanonicalSchemaTree;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import com.github.fge.jsonschema.core.tree.key.SchemaKey;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Syntax checking of a schema read from a {@link JsonParser}
+ *
+ * <p>The schema is never built as a whole. For each schema object, the
+ * values of its keywords are read into a skeleton of this object, then
+ * keywords are checked. Subschemas found while reading a keyword value are
+ * checked as they are read, and only a placeholder is left in the skeleton;
+ * therefore, memory use depends on the size of keyword values which are not
+ * subschemas (such as {@code enum}), and on the nesting depth of subschemas,
+ * not on the size of the schema. Values of unknown keywords are skipped.</p>
+ *
+ * <p>Whether an object in a keyword value is a subschema is found out by
+ * probing: the syntax checker of the keyword is run against a minimal
+ * schema with an empty object at this position, and tells whether it would
+ * check it as a subschema.</p>
+ *
+ * <p>Some checkers check that elements of an array are unique, and subschemas
+ * may be elements of such arrays (for instance, {@code type} in draft v3).
+ * For this reason, a placeholder is an object containing a hash of the
+ * contents of the subschema, computed so that equivalent subschemas (as per
+ * {@link com.github.fge.jackson.JsonNumEquals}) have the same hash.</p>
+ *
+ * <p>The messages are the same as when checking the schema using a tree, but
+ * the order differs: messages for a subschema come before the messages for
+ * the schema containing it.</p>
+ */
+@NotThreadSafe
+final class SyntaxStream
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+    private static final ObjectReader READER = JacksonUtils.getReader();
+    private static final HashFunction STRINGS = Hashing.murmur3_128();
+    private static final JsonNode EMPTY_STRING = FACTORY.textNode("");
+
+    private static final long OBJECT = 0x9e3779b97f4a7c15L;
+    private static final long ARRAY = 0xc2b2ae3d27d4eb4fL;
+    private static final long MEMBER = 0x165667b19e3779f9L;
+    private static final long STRING = 1L;
+    private static final long NUMBER = 2L;
+    private static final long TRUE = 3L;
+    private static final long FALSE = 4L;
+    private static final long NULL = 5L;
+
+    private final SyntaxProcessor processor;
+    private final ProcessingReport report;
+    private final SchemaKey key;
+    private final JsonParser parser;
+    private final int maxValues;
+
+    /**
+     * Containers being read, innermost last
+     */
+    private final List<Container> stack = Lists.newArrayList();
+
+    private final List<JsonPointer> pointers = Lists.newArrayList();
+
+    private ObjectNode root;
+
+    /**
+     * Number of keyword values which were too large, used to make the hash
+     * of their schemas unique
+     */
+    private long truncated;
+
+    SyntaxStream(final SyntaxProcessor processor,
+        final ProcessingReport report, final SchemaKey key,
+        final JsonParser parser, final int maxValues)
+    {
+        this.processor = processor;
+        this.report = report;
+        this.key = key;
+        this.parser = parser;
+        this.maxValues = maxValues;
+    }
+
+    void run()
+        throws IOException, ProcessingException
+    {
+        JsonToken token = parser.getCurrentToken();
+        if (token == null)
+            token = parser.nextToken();
+        if (token == null)
+            throw new JsonParseException(parser, "no JSON value to read");
+
+        /*
+         * Not an object: there is nothing to stream
+         */
+        if (token != JsonToken.START_OBJECT) {
+            final JsonNode node = READER.readTree(parser);
+            processor.validate(report, new CanonicalSchemaTree(key, node), 0);
+            return;
+        }
+
+        root = FACTORY.objectNode();
+        stack.add(new Container(root, JsonPointer.empty(), 0, 0));
+
+        Container top;
+
+        while (!stack.isEmpty()) {
+            token = nextToken();
+            top = stack.get(stack.size() - 1);
+            switch (token) {
+                case FIELD_NAME:
+                    top.field = parser.getCurrentName();
+                    if (top.schema == stack.size() - 1)
+                        startKeyword(top);
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    end(top);
+                    break;
+                case START_OBJECT:
+                    if (!countValue(top))
+                        break;
+                    if (isSubschema(top))
+                        startSubschema(top);
+                    else
+                        stack.add(top.child(FACTORY.objectNode()));
+                    break;
+                case START_ARRAY:
+                    if (countValue(top))
+                        stack.add(top.child(FACTORY.arrayNode()));
+                    break;
+                default:
+                    if (countValue(top))
+                        top.add(READER.<JsonNode>readTree(parser),
+                            scalarHash(token));
+            }
+        }
+    }
+
+    /*
+     * Values of unknown keywords are not kept: only their name is recorded
+     */
+    private void startKeyword(final Container schema)
+        throws IOException
+    {
+        schema.values = 0;
+        if (processor.getChecker(schema.field) != null)
+            return;
+        nextToken();
+        schema.add(FACTORY.nullNode(), skipValue());
+    }
+
+    /*
+     * Count one more value for the keyword being read. If there are too many,
+     * report it, skip the rest of the keyword value and remove the keyword
+     * from the schema.
+     */
+    private boolean countValue(final Container top)
+        throws IOException, ProcessingException
+    {
+        final Container schema = stack.get(top.schema);
+        if (++schema.values <= maxValues)
+            return true;
+
+        report.error(processor.newMsg(tree(schema.pointer),
+            "core.valueTooLarge").putArgument("keyword", schema.field)
+            .putArgument("maxValues", maxValues));
+
+        int open = stack.size() - 1 - top.schema;
+        if (parser.getCurrentToken().isStructStart())
+            open++;
+
+        JsonToken token;
+        while (open > 0) {
+            token = nextToken();
+            if (token.isStructStart())
+                open++;
+            else if (token.isStructEnd())
+                open--;
+        }
+
+        while (stack.size() - 1 > top.schema)
+            stack.remove(stack.size() - 1);
+        ((ObjectNode) schema.node).remove(schema.field);
+        schema.add(++truncated);
+        return false;
+    }
+
+    /*
+     * Probe the syntax checker of the current keyword with a minimal schema:
+     * the path from the keyword to the object, with only one element in
+     * arrays
+     */
+    private boolean isSubschema(final Container top)
+    {
+        final int schemaIndex = top.schema;
+        final String keyword = stack.get(schemaIndex).field;
+
+        JsonNode node = FACTORY.objectNode();
+        Container container;
+
+        for (int i = stack.size() - 1; i > schemaIndex; i--) {
+            container = stack.get(i);
+            node = container.node.isArray() ? FACTORY.arrayNode().add(node)
+                : FACTORY.objectNode().set(container.field, node);
+        }
+
+        JsonPointer expected = JsonPointer.empty().append(keyword);
+        for (int i = schemaIndex + 1; i < stack.size(); i++) {
+            container = stack.get(i);
+            expected = container.node.isArray() ? expected.append(0)
+                : expected.append(container.field);
+        }
+
+        final ObjectNode probe = FACTORY.objectNode();
+        probe.set(keyword, node);
+
+        final SyntaxChecker checker = processor.getChecker(keyword);
+        final List<JsonPointer> collected = Lists.newArrayList();
+        try {
+            checker.checkSyntax(collected, processor.getBundle(),
+                new DevNullProcessingReport(LogLevel.NONE, LogLevel.NONE),
+                new CanonicalSchemaTree(SchemaKey.anonymousKey(), probe));
+        } catch (ProcessingException ignored) {
+            return false;
+        }
+        return collected.contains(expected);
+    }
+
+    private void startSubschema(final Container parent)
+        throws IOException, ProcessingException
+    {
+        final int depth = stack.get(parent.schema).depth + 1;
+        final JsonPointer pointer = parent.childPointer();
+
+        if (depth <= processor.getMaxDepth()) {
+            final Container schema = new Container(FACTORY.objectNode(),
+                pointer, stack.size(), depth);
+            parent.attach(schema.node);
+            stack.add(schema);
+            return;
+        }
+
+        final long hash = skipValue();
+        parent.add(placeholder(parent, hash, FACTORY.objectNode()), hash);
+        report.error(processor.newMsg(tree(pointer), "core.maxDepthExceeded")
+            .putArgument("maxDepth", processor.getMaxDepth()));
+    }
+
+    private void end(final Container top)
+        throws ProcessingException
+    {
+        stack.remove(stack.size() - 1);
+        final long hash = top.hash();
+
+        final Container parent = stack.isEmpty() ? null
+            : stack.get(stack.size() - 1);
+
+        if (parent != null)
+            parent.add(hash);
+        if (top.schema != stack.size())
+            return;
+
+        /*
+         * Check keywords, then subschemas which were not read as such (they
+         * are in the skeleton)
+         */
+        final SchemaTree tree = tree(top.pointer);
+        pointers.clear();
+        processor.validateOne(report, tree, pointers);
+
+        SchemaTree subtree;
+        for (final JsonPointer pointer: pointers) {
+            subtree = tree.append(pointer);
+            if (top.placeholders == null
+                || !top.placeholders.contains(subtree.getNode()))
+                processor.validate(report, subtree, top.depth + 1);
+        }
+
+        /*
+         * The schema is no longer needed, only its hash is
+         */
+        if (parent != null)
+            parent.replaceLast(placeholder(parent, hash, top.node));
+    }
+
+    /*
+     * Placeholders are recorded by the schema they belong to. They are
+     * immutable, and as small as possible. Keywords of the subschema with a
+     * scalar value are kept in its placeholder, since some checkers look at
+     * them (for instance, properties in draft v3 checks the type of
+     * required); strings are replaced with empty strings, their contents is
+     * accounted for by the hash.
+     */
+    private JsonNode placeholder(final Container parent, final long hash,
+        final JsonNode subschema)
+    {
+        final ImmutableMap.Builder<String, JsonNode> builder
+            = ImmutableMap.builder();
+        builder.put("", LongNode.valueOf(hash));
+
+        final Iterator<Map.Entry<String, JsonNode>> members
+            = subschema.fields();
+
+        Map.Entry<String, JsonNode> member;
+        JsonNode value;
+
+        while (members.hasNext()) {
+            member = members.next();
+            value = member.getValue();
+            if (!value.isValueNode()
+                || processor.getChecker(member.getKey()) == null)
+                continue;
+            builder.put(member.getKey(),
+                value.isTextual() ? EMPTY_STRING : value);
+        }
+
+        final JsonNode placeholder = new ObjectNode(FACTORY, builder.build());
+        final Container schema = stack.get(parent.schema);
+        if (schema.placeholders == null)
+            schema.placeholders = Collections.newSetFromMap(
+                new IdentityHashMap<JsonNode, Boolean>());
+        schema.placeholders.add(placeholder);
+        return placeholder;
+    }
+
+    private SchemaTree tree(final JsonPointer pointer)
+    {
+        return new CanonicalSchemaTree(key, root).setPointer(pointer);
+    }
+
+    private JsonToken nextToken()
+        throws IOException
+    {
+        final JsonToken token = parser.nextToken();
+        if (token == null)
+            throw new JsonParseException(parser, "unexpected end of input");
+        return token;
+    }
+
+    /*
+     * Skip the value at the current token, and return its hash
+     */
+    private long skipValue()
+        throws IOException
+    {
+        JsonToken token = parser.getCurrentToken();
+        if (!token.isStructStart())
+            return scalarHash(token);
+
+        final Deque<Hash> hashes = new ArrayDeque<>();
+        hashes.push(new Hash(token == JsonToken.START_ARRAY));
+
+        long hash;
+
+        while (true) {
+            token = nextToken();
+            switch (token) {
+                case FIELD_NAME:
+                    hashes.peek().field = parser.getCurrentName();
+                    break;
+                case START_OBJECT:
+                case START_ARRAY:
+                    hashes.push(new Hash(token == JsonToken.START_ARRAY));
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    hash = hashes.pop().hash();
+                    if (hashes.isEmpty())
+                        return hash;
+                    hashes.peek().add(hash);
+                    break;
+                default:
+                    hashes.peek().add(scalarHash(token));
+            }
+        }
+    }
+
+    /*
+     * Numbers are hashed so that numerically equal numbers have the same
+     * hash, as they are equivalent
+     */
+    private long scalarHash(final JsonToken token)
+        throws IOException
+    {
+        switch (token) {
+            case VALUE_STRING:
+                return mix(STRING + stringHash(parser.getText()));
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                BigDecimal decimal = parser.getDecimalValue();
+                decimal = decimal.signum() == 0 ? BigDecimal.ZERO
+                    : decimal.stripTrailingZeros();
+                return mix(NUMBER + stringHash(decimal.toString()));
+            case VALUE_TRUE:
+                return mix(TRUE);
+            case VALUE_FALSE:
+                return mix(FALSE);
+            default:
+                return mix(NULL);
+        }
+    }
+
+    private static long stringHash(final String s)
+    {
+        return STRINGS.hashUnencodedChars(s).asLong();
+    }
+
+    /*
+     * Finalization step of MurmurHash3 (64 bits)
+     */
+    private static long mix(final long value)
+    {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /*
+     * Hash of an object or array being read. Members of objects are combined
+     * so that their order does not matter.
+     */
+    private static class Hash
+    {
+        private final boolean array;
+        protected String field;
+        private long hash;
+        private int size;
+
+        private Hash(final boolean array)
+        {
+            this.array = array;
+            hash = array ? ARRAY : OBJECT;
+        }
+
+        protected final void add(final long value)
+        {
+            size++;
+            if (array)
+                hash = mix(hash * MEMBER + value);
+            else
+                hash += mix(stringHash(field) * MEMBER + value);
+        }
+
+        protected final long hash()
+        {
+            return mix(hash + size);
+        }
+    }
+
+    /*
+     * An object or array being read; schema is the index in the stack of
+     * the schema it belongs to (its own index if it is a schema)
+     */
+    private static final class Container
+        extends Hash
+    {
+        private final JsonNode node;
+        private final JsonPointer pointer;
+        private final int schema;
+        private final int depth;
+        private int values;
+
+        /*
+         * Placeholders of subschemas of this schema which have already been
+         * checked, null if there are none
+         */
+        private Set<JsonNode> placeholders;
+
+        private Container(final JsonNode node, final JsonPointer pointer,
+            final int schema, final int depth)
+        {
+            super(node.isArray());
+            this.node = node;
+            this.pointer = pointer;
+            this.schema = schema;
+            this.depth = depth;
+        }
+
+        private JsonPointer childPointer()
+        {
+            return node.isArray() ? pointer.append(node.size())
+                : pointer.append(field);
+        }
+
+        private Container child(final JsonNode value)
+        {
+            final Container container
+                = new Container(value, childPointer(), schema, depth);
+            attach(value);
+            return container;
+        }
+
+        private void add(final JsonNode value, final long valueHash)
+        {
+            attach(value);
+            add(valueHash);
+        }
+
+        private void attach(final JsonNode value)
+        {
+            if (node.isArray())
+                ((ArrayNode) node).add(value);
+            else
+                ((ObjectNode) node).set(field, value);
+        }
+
+        private void replaceLast(final JsonNode value)
+        {
+            if (node.isArray())
+                ((ArrayNode) node).set(node.size() - 1, value);
+            else
+                ((ObjectNode) node).set(field, value);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import com.github.fge.jsonschema.core.report.ProcessingReport;
 import com.github.fge.jsonschema.core.tree.SchemaTree;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 
+import javax.annotation.concurrent.ThreadSafe;
 import java.util.Collection;
 import java.util.EnumSet;
 
@@ -40,7 +41,11 @@ import java.util.EnumSet;
  * own, it also provides message templates with the appropriate information and
  * a customized exception provider (throwing a {@link InvalidSchemaException}
  * instead of the base {@link ProcessingException}.</p>
+ *
+ * <p>Instances of this class are immutable, and therefore thread safe;
+ * subclasses should remain so (see {@link SyntaxChecker}).</p>
  */
+@ThreadSafe
 public abstract class AbstractSyntaxChecker
     implements SyntaxChecker
 {
@@ -41,6 +41,11 @@ import java.util.EnumSet;
  * <p>Note that when a syntax checker is called on a schema, it is guaranteed
  * that the keyword exists in the schema.</p>
  *
+ * <p>Implementations must be thread safe: in parallel mode, a {@link
+ * SyntaxProcessor} calls the same checker concurrently on different schemas
+ * (each call having its own report and pointer collection). All syntax
+ * checkers bundled with this package are stateless.</p>
+ *
  * @see SyntaxProcessor
  */
 public interface SyntaxChecker
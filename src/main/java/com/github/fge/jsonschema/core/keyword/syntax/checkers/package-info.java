@@ -46,6 +46,11 @@
  * right after JSON Reference processing. If there were no syntax checking, the
  * matching digester for the {@code type} keyword would throw a {@link
  * java.lang.NullPointerException}.</p>
+ *
+ * <p>All checkers in this package and its subpackages are immutable, and
+ * therefore thread safe; they can be used by a {@link
+ * com.github.fge.jsonschema.core.keyword.syntax.SyntaxProcessor} checking
+ * subschemas in parallel.</p>
  */
 
 package com.github.fge.jsonschema.core.keyword.syntax.checkers;
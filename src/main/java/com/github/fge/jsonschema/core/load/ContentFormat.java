@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load;
+
+import com.github.fge.jsonschema.core.load.configuration.LoadingConfigurationBuilder;
+
+/**
+ * Format of the content fetched by a {@link URIManager}
+ *
+ * <p>Unless a format is configured for a URI scheme, the format of fetched
+ * content is detected from its first bytes: <a
+ * href="https://github.com/FasterXML/smile-format-specification">Smile</a>
+ * content is recognized by its header, <a
+ * href="https://tools.ietf.org/html/rfc7049">CBOR</a> content by its
+ * self-describe tag or by its first byte being the start of an array or map
+ * (which cannot be the first byte of JSON text); anything else is JSON.</p>
+ *
+ * @see LoadingConfigurationBuilder#setContentFormat(String, ContentFormat)
+ */
+public enum ContentFormat
+{
+    /**
+     * JSON text
+     */
+    JSON,
+    /**
+     * Smile; Smile content without a header is only read if this format is
+     * configured for its URI scheme
+     */
+    SMILE,
+    /**
+     * CBOR
+     */
+    CBOR,
+    ;
+
+    /**
+     * Number of bytes needed to detect the format of some content
+     */
+    static final int DETECTION_LENGTH = 3;
+
+    /**
+     * Detect the format of some content from its first bytes
+     *
+     * @param head the first bytes of the content
+     * @param length the number of bytes available
+     * @return the detected format
+     */
+    static ContentFormat detect(final byte[] head, final int length)
+    {
+        if (length == 0)
+            return JSON;
+
+        final int first = head[0] & 0xff;
+
+        // Arrays (major type 4) and maps (major type 5)
+        if (first >= 0x80 && first <= 0xbf)
+            return CBOR;
+
+        if (length < DETECTION_LENGTH)
+            return JSON;
+
+        if (head[0] == ':' && head[1] == ')' && head[2] == '\n')
+            return SMILE;
+
+        // Self-describe tag (55799)
+        if (first == 0xd9 && (head[1] & 0xff) == 0xd9
+            && (head[2] & 0xff) == 0xf7)
+            return CBOR;
+
+        return JSON;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load;
+
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.processing.RawProcessor;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A schema with all its JSON References resolved in advance
+ *
+ * <p>Instances of this class are produced by a {@link SchemaLinker}. They can
+ * be used in place of a {@link RefResolver}: references known at link time
+ * are resolved with a single lookup, and their errors, if any, are reported
+ * as {@link RefResolver} would. Other references, if any, are resolved by a
+ * {@link RefResolver} using the linker's loader.</p>
+ */
+@Immutable
+public final class LinkedSchema
+    extends RawProcessor<SchemaTree, SchemaTree>
+{
+    private final SchemaTree root;
+    private final Map<SchemaLocation, SchemaTree> targets;
+    private final Map<SchemaLocation, ProcessingMessage> errors;
+    private final RefResolver resolver;
+
+    LinkedSchema(final SchemaTree root,
+        final Map<SchemaLocation, SchemaTree> targets,
+        final Map<SchemaLocation, ProcessingMessage> errors,
+        final RefResolver resolver)
+    {
+        super("schema", "schema");
+        this.root = root;
+        this.targets = ImmutableMap.copyOf(targets);
+        this.errors = ImmutableMap.copyOf(errors);
+        this.resolver = resolver;
+    }
+
+    /**
+     * Return the root schema
+     *
+     * @return the tree which was linked
+     */
+    public SchemaTree getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Tell whether all references could be resolved
+     *
+     * @return true if no reference is dangling, loops or could not be loaded
+     */
+    public boolean isSuccess()
+    {
+        return errors.isEmpty();
+    }
+
+    /**
+     * Return the errors found while linking, one for each failing reference
+     *
+     * @return a list of messages (copies)
+     */
+    public List<ProcessingMessage> getErrors()
+    {
+        final ImmutableList.Builder<ProcessingMessage> builder
+            = ImmutableList.builder();
+        for (final ProcessingMessage message: errors.values())
+            builder.add(message.copy());
+        return builder.build();
+    }
+
+    @Override
+    public SchemaTree rawProcess(final ProcessingReport report,
+        final SchemaTree input)
+        throws ProcessingException
+    {
+        if (RefResolver.nodeAsRef(input.getNode()) == null)
+            return input;
+
+        final SchemaLocation location = new SchemaLocation(input);
+        final SchemaTree target = targets.get(location);
+        if (target != null)
+            return target;
+
+        final ProcessingMessage error = errors.get(location);
+        if (error != null)
+            throw new ProcessingException(error.copy());
+
+        return resolver.rawProcess(report, input);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "linked schema";
+    }
+}
@@ -31,8 +31,11 @@ import com.github.fge.jsonschema.core.report.ProcessingReport;
 import com.github.fge.jsonschema.core.tree.SchemaTree;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Sets;
 
+import javax.annotation.Nullable;
 import java.util.Set;
 
 /**
@@ -47,6 +50,11 @@ import java.util.Set;
  *
  * <p>It relies on a {@link SchemaLoader} to load JSON References which are not
  * resolvable within the current schema itself.</p>
+ *
+ * <p>Optionally, resolution results (either the final tree, or the dangling
+ * reference or reference loop error) can be memoized, by loading reference,
+ * base node and pointer of the input tree. Memoized results are discarded when
+ * the schemas cached by the loader are invalidated.</p>
  */
 public final class RefResolver
     extends RawProcessor<SchemaTree, SchemaTree>
@@ -56,16 +64,79 @@ public final class RefResolver
 
     private final SchemaLoader loader;
 
+    /**
+     * Memoized resolution results, or {@code null} if disabled
+     */
+    private final Cache<SchemaLocation, Resolution> resolutions;
+
+    /**
+     * Constructor; resolution results are not memoized
+     *
+     * @param loader the schema loader
+     */
     public RefResolver(final SchemaLoader loader)
     {
         super("schema", "schema");
         this.loader = loader;
+        resolutions = null;
+    }
+
+    /**
+     * Constructor memoizing resolution results
+     *
+     * @param loader the schema loader
+     * @param cacheSize the maximum number of memoized results; -1 means no
+     * limit, 0 disables memoization
+     * @throws IllegalArgumentException cache size is lower than -1
+     */
+    public RefResolver(final SchemaLoader loader, final int cacheSize)
+    {
+        super("schema", "schema");
+        BUNDLE.checkArgument(cacheSize >= -1, "processing.invalidCacheSize");
+        this.loader = loader;
+        if (cacheSize == 0) {
+            resolutions = null;
+            return;
+        }
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        if (cacheSize != -1)
+            builder.maximumSize(cacheSize);
+        resolutions = builder.build();
     }
 
     @Override
     public SchemaTree rawProcess(final ProcessingReport report,
         final SchemaTree input)
         throws ProcessingException
+    {
+        /*
+         * Nothing to memoize if memoization is disabled, or if the input is
+         * not a JSON Reference to begin with
+         */
+        if (resolutions == null || nodeAsRef(input.getNode()) == null)
+            return resolve(input);
+
+        final SchemaLocation location = new SchemaLocation(input);
+        final long generation = loader.getGeneration();
+        Resolution resolution = resolutions.getIfPresent(location);
+
+        if (resolution == null || resolution.generation != generation) {
+            try {
+                resolution = new Resolution(generation, resolve(input), null);
+            } catch (ResolutionException e) {
+                resolution = new Resolution(generation, null,
+                    e.getProcessingMessage().copy());
+            }
+            resolutions.put(location, resolution);
+        }
+
+        if (resolution.error != null)
+            throw new ProcessingException(resolution.error.copy());
+        return resolution.tree;
+    }
+
+    private SchemaTree resolve(final SchemaTree input)
+        throws ProcessingException
     {
         /*
          * The set of refs we see during ref resolution, necessary to detect ref
@@ -99,7 +170,7 @@ public final class RefResolver
              * If we have seen this ref already, this is a ref loop.
              */
             if (!refs.add(ref))
-                throw new ProcessingException(new ProcessingMessage()
+                throw new ResolutionException(new ProcessingMessage()
                     .setMessage(BUNDLE.getMessage("refProcessing.refLoop"))
                     .put("schema", tree).putArgument("ref", ref)
                     .put("path", refs));
@@ -118,7 +189,7 @@ public final class RefResolver
              */
             ptr = tree.matchingPointer(ref);
             if (ptr == null)
-                throw new ProcessingException(new ProcessingMessage()
+                throw new ResolutionException(new ProcessingMessage()
                     .setMessage(BUNDLE.getMessage("refProcessing.danglingRef"))
                     .put("schema", tree).putArgument("ref", ref));
             tree = tree.setPointer(ptr);
@@ -127,7 +198,8 @@ public final class RefResolver
         return tree;
     }
 
-    private static JsonRef nodeAsRef(final JsonNode node)
+    @Nullable
+    static JsonRef nodeAsRef(final JsonNode node)
     {
         final JsonNode refNode = node.path("$ref");
         if (!refNode.isTextual())
@@ -144,4 +216,37 @@ public final class RefResolver
     {
         return "ref resolver";
     }
+
+    /**
+     * Exception thrown on reference loops and dangling references
+     *
+     * <p>Unlike loading errors, these only depend on the loaded schemas, and
+     * can therefore be memoized.</p>
+     */
+    private static final class ResolutionException
+        extends ProcessingException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private ResolutionException(final ProcessingMessage message)
+        {
+            super(message);
+        }
+    }
+
+    private static final class Resolution
+    {
+        private final long generation;
+        private final SchemaTree tree;
+        private final ProcessingMessage error;
+
+        private Resolution(final long generation,
+            @Nullable final SchemaTree tree,
+            @Nullable final ProcessingMessage error)
+        {
+            this.generation = generation;
+            this.tree = tree;
+            this.error = error;
+        }
+    }
 }
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
+import com.github.fge.jsonschema.core.ref.JsonRef;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ahead of time JSON Reference resolution
+ *
+ * <p>Given a root schema, a linker discovers all JSON References in it, and in
+ * all schemas these references point to, transitively. All of these references
+ * are resolved in one pass, and reference loops are detected as the strongly
+ * connected components of the reference graph (using Tarjan's algorithm).</p>
+ *
+ * <p>The result is a {@link LinkedSchema}, which knows the final target of all
+ * references, or the error (dangling reference, reference loop, loading
+ * failure) resolving them would produce.</p>
+ *
+ * <p>Note that as with {@code id} for inline dereferencing, all object members
+ * named {@code $ref} with a string value are considered to be references; this
+ * includes object members which are not schemas, for instance in {@code
+ * enum}.</p>
+ *
+ * @see RefResolver
+ */
+@ThreadSafe
+public final class SchemaLinker
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaCoreMessageBundle.class);
+
+    private final SchemaLoader loader;
+
+    /**
+     * Constructor
+     *
+     * @param loader the loader to use for references to other schemas
+     * @throws NullPointerException loader is null
+     */
+    public SchemaLinker(final SchemaLoader loader)
+    {
+        this.loader = BUNDLE.checkNotNull(loader, "refProcessing.nullLoader");
+    }
+
+    /**
+     * Link a schema
+     *
+     * @param root the root schema
+     * @return the linked schema
+     * @throws NullPointerException root schema is null
+     */
+    public LinkedSchema link(final SchemaTree root)
+    {
+        BUNDLE.checkNotNull(root, "refProcessing.nullTree");
+
+        final Linking linking = new Linking();
+        linking.walk(root);
+        linking.findLoops();
+
+        final Map<SchemaLocation, SchemaTree> targets = Maps.newHashMap();
+        final Map<SchemaLocation, ProcessingMessage> errors
+            = Maps.newLinkedHashMap();
+
+        for (final RefNode node: linking.refNodes.values()) {
+            if (node.error == null)
+                targets.put(node.location, node.finalTree);
+            else
+                errors.put(node.location, node.error);
+        }
+
+        return new LinkedSchema(root, targets, errors,
+            new RefResolver(loader));
+    }
+
+    /**
+     * The state of one linking operation
+     */
+    private final class Linking
+    {
+        private final Map<SchemaLocation, RefNode> refNodes
+            = Maps.newLinkedHashMap();
+        private final Set<SchemaLocation> visited = Sets.newHashSet();
+        private final Map<URI, SchemaTree> documents = Maps.newHashMap();
+        private final Map<URI, ProcessingMessage> failures
+            = Maps.newHashMap();
+        private final Deque<SchemaTree> toWalk = new ArrayDeque<SchemaTree>();
+
+        private int index = 0;
+        private final Deque<RefNode> stack = new ArrayDeque<RefNode>();
+
+        /*
+         * Discover, and resolve, all references reachable from a tree
+         */
+        private void walk(final SchemaTree root)
+        {
+            toWalk.push(root);
+
+            SchemaTree tree;
+            JsonNode node;
+            SchemaLocation location;
+            JsonRef ref;
+
+            while (!toWalk.isEmpty()) {
+                tree = toWalk.pop();
+                location = new SchemaLocation(tree);
+                if (!visited.add(location))
+                    continue;
+                node = tree.getNode();
+                if (node.isArray()) {
+                    for (int i = node.size() - 1; i >= 0; i--)
+                        toWalk.push(tree.append(JsonPointer.empty().append(i)));
+                    continue;
+                }
+                if (!node.isObject())
+                    continue;
+                ref = RefResolver.nodeAsRef(node);
+                if (ref != null)
+                    refNodes.put(location, resolve(tree, location, ref));
+                final Iterator<String> names = node.fieldNames();
+                while (names.hasNext())
+                    toWalk.push(tree.append(JsonPointer.of(names.next())));
+            }
+        }
+
+        /*
+         * Resolve one reference; its target is then walked in turn
+         */
+        private RefNode resolve(final SchemaTree tree,
+            final SchemaLocation location, final JsonRef ref)
+        {
+            final JsonRef resolved = tree.resolve(ref);
+            final RefNode ret = new RefNode(tree, location, resolved);
+
+            SchemaTree document = tree;
+            if (!tree.containsRef(resolved)) {
+                final URI locator = resolved.getLocator();
+                document = documents.get(locator);
+                if (document == null) {
+                    ret.error = failures.get(locator);
+                    if (ret.error != null)
+                        return ret;
+                    try {
+                        document = loader.get(locator);
+                    } catch (ProcessingException e) {
+                        ret.error = e.getProcessingMessage();
+                        failures.put(locator, ret.error);
+                        return ret;
+                    }
+                    documents.put(locator, document);
+                }
+            }
+
+            final JsonPointer ptr = document.matchingPointer(resolved);
+            if (ptr == null) {
+                ret.error = new ProcessingMessage()
+                    .setMessage(BUNDLE.getMessage("refProcessing.danglingRef"))
+                    .put("schema", document).putArgument("ref", resolved);
+                return ret;
+            }
+
+            ret.targetTree = document.setPointer(ptr);
+            ret.target = new SchemaLocation(ret.targetTree);
+            toWalk.push(ret.targetTree);
+            return ret;
+        }
+
+        /*
+         * Tarjan's algorithm, iterative version. Since a reference has at most
+         * one successor, a node is done as soon as its successor is.
+         *
+         * Strongly connected components are found in reverse topological
+         * order: when a component is found, the final target of its successor
+         * (if any) is therefore already known.
+         */
+        private void findLoops()
+        {
+            final Deque<RefNode> calls = new ArrayDeque<RefNode>();
+
+            RefNode node, successor;
+
+            for (final RefNode start: refNodes.values()) {
+                if (start.index >= 0)
+                    continue;
+                visit(start);
+                calls.push(start);
+                while (!calls.isEmpty()) {
+                    node = calls.peek();
+                    successor = successor(node);
+                    if (successor != null && !node.successorSeen) {
+                        node.successorSeen = true;
+                        if (successor.index < 0) {
+                            visit(successor);
+                            calls.push(successor);
+                        } else if (successor.onStack) {
+                            node.lowLink = Math.min(node.lowLink,
+                                successor.index);
+                        }
+                        continue;
+                    }
+                    calls.pop();
+                    if (!calls.isEmpty())
+                        calls.peek().lowLink = Math.min(calls.peek().lowLink,
+                            node.lowLink);
+                    if (node.lowLink == node.index)
+                        component(node);
+                }
+            }
+        }
+
+        private void visit(final RefNode node)
+        {
+            node.index = node.lowLink = index++;
+            stack.push(node);
+            node.onStack = true;
+        }
+
+        private RefNode successor(final RefNode node)
+        {
+            return node.target == null ? null : refNodes.get(node.target);
+        }
+
+        private void component(final RefNode root)
+        {
+            final List<RefNode> members = Lists.newArrayList();
+            RefNode member;
+            do {
+                member = stack.pop();
+                member.onStack = false;
+                members.add(member);
+            } while (member != root);
+
+            final RefNode successor = successor(root);
+
+            if (members.size() > 1 || successor == root) {
+                loop(root);
+                return;
+            }
+
+            if (root.error != null)
+                return;
+
+            if (successor == null) {
+                root.finalTree = root.targetTree;
+                return;
+            }
+
+            if (successor.loopPath == null) {
+                root.error = successor.error;
+                root.finalTree = successor.finalTree;
+                return;
+            }
+
+            /*
+             * A reference leading to a loop: report it as RefResolver does,
+             * that is with the whole path from this reference, up to the first
+             * reference seen twice.
+             */
+            final List<JsonRef> path = Lists.newArrayList();
+            path.add(root.ref);
+            if (successor.loopMember) {
+                path.addAll(successor.loopPath.subList(0,
+                    successor.loopPath.size() - 1));
+                root.loopRef = root.ref;
+                root.loopSchema = successor.loopPredecessor;
+            } else {
+                path.addAll(successor.loopPath);
+                root.loopRef = successor.loopRef;
+                root.loopSchema = successor.loopSchema;
+            }
+            root.loopPath = path;
+            root.error = loopMessage(root);
+        }
+
+        /*
+         * All members of a loop report it, with the path starting from them
+         */
+        private void loop(final RefNode start)
+        {
+            final List<RefNode> members = Lists.newArrayList();
+            RefNode node = start;
+            do {
+                members.add(node);
+                node = successor(node);
+            } while (node != start);
+
+            final int size = members.size();
+            List<JsonRef> path;
+
+            for (int i = 0; i < size; i++) {
+                node = members.get(i);
+                path = Lists.newArrayList();
+                for (int j = 0; j < size; j++)
+                    path.add(members.get((i + j) % size).ref);
+                node.loopMember = true;
+                node.loopPath = path;
+                node.loopRef = node.ref;
+                node.loopSchema = node.tree;
+                node.loopPredecessor = members.get((i + size - 1) % size).tree;
+                node.error = loopMessage(node);
+            }
+        }
+
+        private ProcessingMessage loopMessage(final RefNode node)
+        {
+            return new ProcessingMessage()
+                .setMessage(BUNDLE.getMessage("refProcessing.refLoop"))
+                .put("schema", node.loopSchema)
+                .putArgument("ref", node.loopRef)
+                .put("path", node.loopPath);
+        }
+    }
+
+    private static final class RefNode
+    {
+        private final SchemaTree tree;
+        private final SchemaLocation location;
+        private final JsonRef ref;
+
+        private SchemaTree targetTree;
+        private SchemaLocation target;
+        private SchemaTree finalTree;
+        private ProcessingMessage error;
+
+        /*
+         * For references which loop, or lead to a loop
+         */
+        private boolean loopMember;
+        private List<JsonRef> loopPath;
+        private JsonRef loopRef;
+        private SchemaTree loopSchema;
+        private SchemaTree loopPredecessor;
+
+        private int index = -1;
+        private int lowLink;
+        private boolean onStack;
+        private boolean successorSeen;
+
+        private RefNode(final SchemaTree tree, final SchemaLocation location,
+            final JsonRef ref)
+        {
+            this.tree = tree;
+            this.location = location;
+            this.ref = ref;
+        }
+    }
+}
@@ -20,9 +20,12 @@
 package com.github.fge.jsonschema.core.load;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
 import com.github.fge.jsonschema.core.load.configuration.LoadingConfigurationBuilder;
+import com.github.fge.jsonschema.core.load.download.AsyncURIDownloader;
+import com.github.fge.jsonschema.core.load.store.SchemaStore;
 import com.github.fge.jsonschema.core.load.uri.URITranslator;
 import com.github.fge.jsonschema.core.load.uri.URITranslatorConfiguration;
 import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
@@ -31,16 +34,45 @@ import com.github.fge.jsonschema.core.report.ProcessingMessage;
 import com.github.fge.jsonschema.core.tree.SchemaTree;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.base.Function;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * JSON Schema loader
@@ -73,8 +105,13 @@ public final class SchemaLoader
 
     /**
      * Schema cache
+     *
+     * <p>Schema trees are immutable; the cache therefore holds the root trees
+     * themselves, keyed by normalized URI, and not only their schemas. The
+     * dereferencing mode being fixed for a loader, it need not be part of the
+     * key.</p>
      */
-    private final LoadingCache<URI, JsonNode> cache;
+    private final LoadingCache<URI, SchemaTree> cache;
 
     /**
      * Our dereferencing mode
@@ -86,6 +123,46 @@ public final class SchemaLoader
      */
     private final Map<URI, JsonNode> preloadedSchemas;
 
+    /**
+     * Root trees of preloaded schemas, built on first access
+     *
+     * <p>These are kept regardless of the cache size, as are preloaded
+     * schemas.</p>
+     */
+    private final ConcurrentMap<URI, SchemaTree> preloadedTrees
+        = Maps.newConcurrentMap();
+
+    /**
+     * Executor for schema prefetching
+     */
+    private final Executor executor;
+
+    /**
+     * Executor for asynchronous loads using blocking downloaders, and cache
+     * refreshes
+     *
+     * <p>This is the prefetching executor, unless it is the direct executor:
+     * asynchronous loads and refreshes must not run in the calling thread, so
+     * a shared background executor is used instead.</p>
+     */
+    private final Executor asyncExecutor;
+
+    /**
+     * Pending asynchronous loads, by normalized URI
+     */
+    private final ConcurrentMap<URI, ListenableFuture<SchemaTree>> inFlight
+        = Maps.newConcurrentMap();
+
+    /**
+     * Generation of the cache
+     *
+     * <p>This is incremented each time cached schemas are invalidated, expire
+     * or are refreshed, which allows processors memoizing results derived from
+     * loaded schemas (see {@link RefResolver}) to know that these results are
+     * stale.</p>
+     */
+    private final AtomicLong generation = new AtomicLong();
+
     /**
      * Create a new schema loader with a given loading configuration
      *
@@ -97,6 +174,9 @@ public final class SchemaLoader
     {
         translator = new URITranslator(cfg.getTranslatorConfiguration());
         dereferencing = cfg.getDereferencing();
+        executor = cfg.getPrefetchExecutor();
+        asyncExecutor = executor == MoreExecutors.directExecutor()
+            ? BackgroundExecutor.EXECUTOR : executor;
         manager = new URIManager(cfg);
         preloadedSchemas = ImmutableMap.copyOf(cfg.getPreloadedSchemas());
 
@@ -104,14 +184,63 @@ public final class SchemaLoader
         if (cfg.getCacheSize() != -1) {
         	builder.maximumSize(cfg.getCacheSize());
         }
-        cache = builder.build(new CacheLoader<URI, JsonNode>()
+        if (cfg.getExpireAfterWriteNanos() != -1L)
+            builder.expireAfterWrite(cfg.getExpireAfterWriteNanos(),
+                TimeUnit.NANOSECONDS);
+        if (cfg.getRefreshAfterWriteNanos() != -1L)
+            builder.refreshAfterWrite(cfg.getRefreshAfterWriteNanos(),
+                TimeUnit.NANOSECONDS);
+        cache = builder.removalListener(new RemovalListener<URI, SchemaTree>()
+            {
+                /*
+                 * Evicting a schema for size does not make it stale.
+                 *
+                 * An expired schema must be fetched again, so it is removed
+                 * from the store as well; the cache notifies expiries before
+                 * loading the schema again. Explicit invalidations remove it
+                 * from the store by themselves.
+                 */
+                @Override
+                public void onRemoval(
+                    final RemovalNotification<URI, SchemaTree> notification)
+                {
+                    final RemovalCause cause = notification.getCause();
+                    if (cause == RemovalCause.SIZE)
+                        return;
+                    if (cause == RemovalCause.EXPIRED)
+                        manager.forget(notification.getKey());
+                    generation.incrementAndGet();
+                }
+            }).build(new CacheLoader<URI, SchemaTree>()
             {
                 @Nonnull
                 @Override
-                public JsonNode load(@Nonnull final URI key)
+                public SchemaTree load(@Nonnull final URI key)
                     throws ProcessingException
                 {
-                    return manager.getContent(key);
+                    return dereferencing.newTree(JsonRef.fromURI(key),
+                        manager.getContent(key));
+                }
+
+                @Nonnull
+                @Override
+                public ListenableFuture<SchemaTree> reload(
+                    @Nonnull final URI key, @Nonnull final SchemaTree oldValue)
+                {
+                    final ListenableFutureTask<SchemaTree> task
+                        = ListenableFutureTask.create(new Callable<SchemaTree>()
+                        {
+                            @Override
+                            public SchemaTree call()
+                                throws ProcessingException
+                            {
+                                return dereferencing.newTree(
+                                    JsonRef.fromURI(key),
+                                    manager.fetchContent(key));
+                            }
+                        });
+                    asyncExecutor.execute(task);
+                    return task;
                 }
             });
     }
@@ -165,19 +294,383 @@ public final class SchemaLoader
 
         final URI realURI = ref.toURI();
 
+        final JsonNode node = preloadedSchemas.get(realURI);
+        if (node != null)
+            return preloadedTree(ref, node);
+
         try {
-            JsonNode node = preloadedSchemas.get(realURI);
-            if (node == null)
-                node = cache.get(realURI);
-            return dereferencing.newTree(ref, node);
+            return cache.get(realURI);
         } catch (ExecutionException e) {
             throw (ProcessingException) e.getCause();
         }
     }
 
+    /**
+     * Invalidate a cached schema
+     *
+     * <p>The schema will be loaded again when next needed. If a {@link
+     * SchemaStore} is configured, the schema is removed from it as well.
+     * Preloaded schemas are not affected.</p>
+     *
+     * @param uri the URI
+     * @throws NullPointerException URI is null
+     */
+    public void invalidate(final URI uri)
+    {
+        final JsonRef ref = JsonRef.fromURI(translator.translate(uri));
+
+        if (!ref.isAbsolute())
+            return;
+
+        final URI realURI = ref.toURI();
+        cache.invalidate(realURI);
+        manager.forget(realURI);
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Invalidate all cached schemas
+     *
+     * <p>Schemas will be loaded again when next needed. If a {@link
+     * SchemaStore} is configured, it is cleared as well. Preloaded schemas are
+     * not affected.</p>
+     */
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+        manager.forgetAll();
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Get a schema tree from the given URI, asynchronously
+     *
+     * <p>The schema is looked up in preloaded schemas and in the cache first;
+     * if it is not there, it is loaded without blocking the calling thread.
+     * Schemas whose scheme has an {@link AsyncURIDownloader} are fetched
+     * without holding any thread while waiting for the content; others are
+     * fetched using the executor set with {@link
+     * LoadingConfigurationBuilder#setPrefetchExecutor(Executor)} or, if none
+     * is set, using a shared pool of background threads.</p>
+     *
+     * <p>Concurrent loads of the same URI share a single fetch. Loaded schemas
+     * are put in the cache.</p>
+     *
+     * <p>The returned future fails with a {@link ProcessingException} in the
+     * same conditions as {@link #get(URI)} would throw one. Cancelling it
+     * does not cancel the fetch for other callers.</p>
+     *
+     * @param uri the URI
+     * @return a future of the schema tree
+     * @throws NullPointerException URI is null
+     */
+    public ListenableFuture<SchemaTree> getAsync(final URI uri)
+    {
+        final JsonRef ref = JsonRef.fromURI(translator.translate(uri));
+
+        if (!ref.isAbsolute())
+            return Futures.immediateFailedFuture(new ProcessingException(
+                new ProcessingMessage()
+                .setMessage(BUNDLE.getMessage("refProcessing.uriNotAbsolute"))
+                .putArgument("uri", ref)));
+
+        final URI realURI = ref.toURI();
+
+        final JsonNode node = preloadedSchemas.get(realURI);
+        if (node != null)
+            return Futures.immediateFuture(preloadedTree(ref, node));
+
+        final SchemaTree tree = cache.getIfPresent(realURI);
+        if (tree != null)
+            return Futures.immediateFuture(tree);
+
+        final SettableFuture<SchemaTree> future = SettableFuture.create();
+        final ListenableFuture<SchemaTree> previous
+            = inFlight.putIfAbsent(realURI, future);
+        if (previous != null)
+            return Futures.nonCancellationPropagating(previous);
+
+        final ListenableFuture<JsonNode> content
+            = manager.getContentAsync(realURI, asyncExecutor);
+        future.setFuture(Futures.transform(content,
+            new Function<JsonNode, SchemaTree>()
+            {
+                @Override
+                public SchemaTree apply(final JsonNode input)
+                {
+                    final SchemaTree ret = dereferencing.newTree(ref, input);
+                    cache.put(realURI, ret);
+                    return ret;
+                }
+            }, MoreExecutors.directExecutor()));
+        future.addListener(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                inFlight.remove(realURI, future);
+            }
+        }, MoreExecutors.directExecutor());
+        return Futures.nonCancellationPropagating(future);
+    }
+
+    /**
+     * Get a schema tree from the given URI, asynchronously, with a timeout
+     *
+     * <p>This is the same as {@link #getAsync(URI)}, except that the returned
+     * future fails with a {@link TimeoutException} if the schema is not
+     * loaded within the given time. A timeout does not cancel the fetch for
+     * other callers.</p>
+     *
+     * @param uri the URI
+     * @param timeout the timeout
+     * @param unit the unit of the timeout
+     * @return a future of the schema tree
+     * @throws NullPointerException URI or unit is null
+     */
+    public ListenableFuture<SchemaTree> getAsync(final URI uri,
+        final long timeout, final TimeUnit unit)
+    {
+        final ListenableFuture<SchemaTree> future = getAsync(uri);
+        if (future.isDone())
+            return future;
+        return Futures.withTimeout(future, timeout, unit,
+            TimeoutScheduler.SCHEDULER);
+    }
+
+    /**
+     * Prefetch a schema, and all schemas it references, transitively
+     *
+     * @param uri the URI
+     * @throws NullPointerException URI is null
+     * @see #prefetch(Iterable)
+     */
+    public void prefetch(final URI uri)
+    {
+        BUNDLE.checkNotNull(uri, "jsonRef.nullURI");
+        prefetch(Collections.singleton(uri));
+    }
+
+    /**
+     * Prefetch schemas, and all schemas they reference, transitively
+     *
+     * <p>Loaded schemas are scanned for JSON References to other schemas,
+     * which are then loaded in turn until no new schema is found. Schemas are
+     * loaded using the executor of the loading configuration (see {@link
+     * LoadingConfigurationBuilder#setPrefetchExecutor(Executor)}): with an
+     * executor running several threads, the time spent prefetching is bounded
+     * by the longest chain of references rather than by the number of schemas
+     * to load.</p>
+     *
+     * <p>Loaded schemas end up in the cache (prefetching is therefore useless
+     * if the cache is disabled). Schemas which fail to load are ignored here;
+     * the error will be reported by {@link #get(URI)}, as usual.</p>
+     *
+     * <p>This method returns when all schemas have been loaded, or when the
+     * calling thread is interrupted, in which case the interrupt flag is
+     * set.</p>
+     *
+     * @param uris the URIs
+     * @throws NullPointerException one of the URIs is null
+     */
+    public void prefetch(final Iterable<URI> uris)
+    {
+        final Prefetch prefetch = new Prefetch();
+        for (final URI uri: uris)
+            prefetch.submit(BUNDLE.checkNotNull(uri, "jsonRef.nullURI"));
+        prefetch.await();
+    }
+
+    /**
+     * Return the current generation of the cache
+     *
+     * @return the generation
+     */
+    long getGeneration()
+    {
+        return generation.get();
+    }
+
+    private SchemaTree preloadedTree(final JsonRef ref, final JsonNode node)
+    {
+        final URI uri = ref.toURI();
+        SchemaTree tree = preloadedTrees.get(uri);
+        if (tree != null)
+            return tree;
+        tree = dereferencing.newTree(ref, node);
+        final SchemaTree previous = preloadedTrees.putIfAbsent(uri, tree);
+        return previous == null ? tree : previous;
+    }
+
     @Override
     public String toString()
     {
         return cache.toString();
     }
+
+    /**
+     * Return the locators of all references to other schemas in a schema
+     *
+     * @param root the schema
+     * @return a set of URIs
+     */
+    private static Set<URI> refLocators(final SchemaTree root)
+    {
+        final Set<URI> ret = Sets.newHashSet();
+        final Deque<SchemaTree> trees = new ArrayDeque<SchemaTree>();
+        trees.push(root);
+
+        SchemaTree tree;
+        JsonNode node;
+        JsonRef ref;
+
+        while (!trees.isEmpty()) {
+            tree = trees.pop();
+            node = tree.getNode();
+            if (node.isArray()) {
+                for (int i = 0; i < node.size(); i++)
+                    trees.push(tree.append(JsonPointer.empty().append(i)));
+                continue;
+            }
+            if (!node.isObject())
+                continue;
+            ref = RefResolver.nodeAsRef(node);
+            if (ref != null) {
+                ref = tree.resolve(ref);
+                if (!tree.containsRef(ref))
+                    ret.add(ref.getLocator());
+            }
+            final Iterator<String> names = node.fieldNames();
+            while (names.hasNext())
+                trees.push(tree.append(JsonPointer.of(names.next())));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Holder for the shared executor of asynchronous loads, created only when
+     * needed
+     *
+     * <p>Its threads are daemon threads, and terminate when idle.</p>
+     */
+    private static final class BackgroundExecutor
+    {
+        private static final int THREADS
+            = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        private static final Executor EXECUTOR;
+
+        static {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                THREADS, THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("schema-loader-%d").build());
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTOR = executor;
+        }
+    }
+
+    /**
+     * Holder for the scheduler of asynchronous load timeouts, created only
+     * when needed
+     */
+    private static final class TimeoutScheduler
+    {
+        private static final ScheduledExecutorService SCHEDULER
+            = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("schema-loader-timeout-%d").build());
+    }
+
+    /**
+     * One prefetching operation
+     *
+     * <p>The number of pending loads is incremented before a load is submitted,
+     * and decremented only once all the references it found have been
+     * submitted: when it reaches zero, the whole closure has been loaded.</p>
+     *
+     * <p>With the direct executor, loading a schema from within the load of
+     * the schema referencing it would grow the stack with the length of the
+     * chain of references; schemas are queued instead, and the queue is
+     * drained by the calling thread.</p>
+     */
+    private final class Prefetch
+    {
+        private final Set<URI> seen
+            = Collections.newSetFromMap(Maps.<URI, Boolean>newConcurrentMap());
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final Object lock = new Object();
+        private final boolean direct
+            = executor == MoreExecutors.directExecutor();
+        private final Deque<URI> queue = new ArrayDeque<URI>();
+
+        private void submit(final URI uri)
+        {
+            final JsonRef ref = JsonRef.fromURI(translator.translate(uri));
+            if (!ref.isAbsolute() || !seen.add(ref.toURI()))
+                return;
+
+            if (direct) {
+                queue.add(uri);
+                return;
+            }
+
+            pending.incrementAndGet();
+            try {
+                executor.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try {
+                            load(uri);
+                        } finally {
+                            done();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException ignored) {
+                done();
+            }
+        }
+
+        private void load(final URI uri)
+        {
+            try {
+                for (final URI locator: refLocators(get(uri)))
+                    submit(locator);
+            } catch (ProcessingException ignored) {
+                // Will be reported by .get()
+            }
+        }
+
+        private void done()
+        {
+            if (pending.decrementAndGet() != 0)
+                return;
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+
+        private void await()
+        {
+            URI uri;
+            while ((uri = queue.poll()) != null)
+                load(uri);
+
+            done();
+            synchronized (lock) {
+                while (pending.get() != 0)
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ignored) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+            }
+        }
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonschema.core.ref.JsonRef;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The location of a schema tree: its loading reference, base node and pointer
+ *
+ * <p>Different schemas may be loaded with the same loading reference (for
+ * instance, anonymous schemas): the base node is compared by identity.</p>
+ */
+@Immutable
+final class SchemaLocation
+{
+    private final JsonRef loadingRef;
+    private final JsonNode baseNode;
+    private final JsonPointer pointer;
+
+    SchemaLocation(final SchemaTree tree)
+    {
+        loadingRef = tree.getLoadingRef();
+        baseNode = tree.getBaseNode();
+        pointer = tree.getPointer();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * (31 * loadingRef.hashCode()
+            + System.identityHashCode(baseNode)) + pointer.hashCode();
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object obj)
+    {
+        if (obj == null)
+            return false;
+        if (this == obj)
+            return true;
+        if (getClass() != obj.getClass())
+            return false;
+        final SchemaLocation other = (SchemaLocation) obj;
+        return baseNode == other.baseNode
+            && loadingRef.equals(other.loadingRef)
+            && pointer.equals(other.pointer);
+    }
+}
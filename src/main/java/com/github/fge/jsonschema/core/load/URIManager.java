@@ -19,31 +19,52 @@
 
 package com.github.fge.jsonschema.core.load;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.JsonNodeReader;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
+import com.github.fge.jsonschema.core.load.download.AsyncURIDownloader;
 import com.github.fge.jsonschema.core.load.download.URIDownloader;
+import com.github.fge.jsonschema.core.load.store.SchemaStore;
 import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
 import com.github.fge.jsonschema.core.report.ProcessingMessage;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Closer;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.net.URI;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 /**
  * Class to fetch JSON documents
  *
  * <p>This uses a map of {@link URIDownloader} instances to fetch the contents
  * of a URI as an {@link InputStream}, then tries and turns this content into
- * JSON using an {@link ObjectMapper}.</p>
+ * JSON using an {@link ObjectMapper}. Content may be JSON text, Smile or CBOR;
+ * see {@link ContentFormat}.</p>
  *
  * <p>Normally, you will never use this class directly.</p>
  *
@@ -58,6 +79,25 @@ public final class URIManager
 
     private final JsonNodeReader reader;
 
+    /**
+     * Readers for binary content, with the same parser features as {@link
+     * #reader}
+     */
+    private final JsonNodeReader smileReader;
+    private final JsonNodeReader cborReader;
+
+    private final Map<String, ContentFormat> contentFormats;
+
+    /**
+     * Second level store, or {@code null} if none
+     */
+    private final SchemaStore store;
+
+    /**
+     * URI schemes whose content is stored
+     */
+    private final Set<String> storedSchemes;
+
     public URIManager()
     {
         this(LoadingConfiguration.byDefault());
@@ -67,11 +107,23 @@ public final class URIManager
     {
         downloaders = cfg.getDownloaderMap();
         reader = cfg.getReader();
+        final Set<JsonParser.Feature> features = cfg.getParserFeatures();
+        smileReader = binaryReader(new SmileFactory(), features);
+        cborReader = binaryReader(new CBORFactory(), features);
+        contentFormats = cfg.getContentFormats();
+        store = cfg.getSchemaStore();
+        storedSchemes = cfg.getStoredSchemes();
     }
 
     /**
      * Get the content at a given URI as a {@link JsonNode}
      *
+     * <p>If a {@link SchemaStore} is configured, content is looked up in it
+     * first; content which has to be fetched is stored in it if it is valid
+     * JSON. Only URIs whose scheme has a registered downloader, and is one of
+     * the stored schemes (see {@link LoadingConfiguration#getStoredSchemes()}),
+     * are looked up.</p>
+     *
      * @param uri the URI
      * @return the content
      * @throws NullPointerException provided URI is null
@@ -80,6 +132,152 @@ public final class URIManager
      */
     public JsonNode getContent(final URI uri)
         throws ProcessingException
+    {
+        final URIDownloader downloader = getDownloader(uri);
+
+        final JsonNode stored = readStored(uri);
+        if (stored != null)
+            return stored;
+
+        return fetch(downloader, uri);
+    }
+
+    /**
+     * Fetch the content at a given URI, bypassing the schema store if any
+     *
+     * <p>Fetched content is still stored.</p>
+     *
+     * @param uri the URI
+     * @return the content
+     * @throws ProcessingException see {@link #getContent(URI)}
+     */
+    JsonNode fetchContent(final URI uri)
+        throws ProcessingException
+    {
+        return fetch(getDownloader(uri), uri);
+    }
+
+    /**
+     * Remove the stored content for a URI from the schema store, if any
+     *
+     * @param uri the URI
+     */
+    void forget(final URI uri)
+    {
+        if (isStored(uri))
+            try {
+                store.remove(uri);
+            } catch (IOException ignored) {
+                // Will be reported when storing again, if at all
+            }
+    }
+
+    /**
+     * Remove all stored content from the schema store, if any
+     */
+    void forgetAll()
+    {
+        if (store != null)
+            try {
+                store.clear();
+            } catch (IOException ignored) {
+                // Same
+            }
+    }
+
+    private JsonNode fetch(final URIDownloader downloader, final URI uri)
+        throws ProcessingException
+    {
+        try (final Closer closer = Closer.create()) {
+            final InputStream in;
+
+            try {
+                in = closer.register(downloader.fetch(uri));
+                if (!isStored(uri))
+                    return read(uri, in);
+                return readAndStore(uri, ByteStreams.toByteArray(in));
+            } catch (IOException e) {
+                throw ioError(uri, e);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the content at a given URI as a {@link JsonNode}, asynchronously
+     *
+     * <p>If the downloader for this URI is an {@link AsyncURIDownloader}, the
+     * content is fetched without blocking, and parsed in the thread completing
+     * the download. Otherwise, the content is fetched and parsed using the
+     * provided executor.</p>
+     *
+     * <p>The returned future fails with a {@link ProcessingException} for the
+     * same reasons that {@link #getContent(URI)} would throw one.</p>
+     *
+     * @param uri the URI
+     * @param executor the executor to use for blocking downloaders
+     * @return a future of the content
+     * @throws NullPointerException provided URI is null
+     */
+    public ListenableFuture<JsonNode> getContentAsync(final URI uri,
+        final Executor executor)
+    {
+        final URIDownloader downloader;
+
+        try {
+            downloader = getDownloader(uri);
+        } catch (ProcessingException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+
+        final JsonNode stored = readStored(uri);
+        if (stored != null)
+            return Futures.immediateFuture(stored);
+
+        if (!(downloader instanceof AsyncURIDownloader)) {
+            final ListenableFutureTask<JsonNode> task
+                = ListenableFutureTask.create(new Callable<JsonNode>()
+                {
+                    @Override
+                    public JsonNode call()
+                        throws ProcessingException
+                    {
+                        return getContent(uri);
+                    }
+                });
+            executor.execute(task);
+            return task;
+        }
+
+        final ListenableFuture<byte[]> bytes
+            = ((AsyncURIDownloader) downloader).fetchAsync(uri);
+
+        final ListenableFuture<JsonNode> content = Futures.transformAsync(bytes,
+            new AsyncFunction<byte[], JsonNode>()
+            {
+                @Override
+                public ListenableFuture<JsonNode> apply(final byte[] input)
+                    throws ProcessingException
+                {
+                    return Futures.immediateFuture(readAndStore(uri, input));
+                }
+            }, MoreExecutors.directExecutor());
+
+        return Futures.catchingAsync(content, IOException.class,
+            new AsyncFunction<IOException, JsonNode>()
+            {
+                @Override
+                public ListenableFuture<JsonNode> apply(final IOException input)
+                    throws ProcessingException
+                {
+                    throw ioError(uri, input);
+                }
+            }, MoreExecutors.directExecutor());
+    }
+
+    private URIDownloader getDownloader(final URI uri)
+        throws ProcessingException
     {
         BUNDLE.checkNotNull(uri, "jsonRef.nullURI");
 
@@ -97,28 +295,113 @@ public final class URIManager
                 .setMessage(BUNDLE.getMessage("refProcessing.unhandledScheme"))
                 .putArgument("scheme", scheme).putArgument("uri", uri));
 
-        try (final Closer closer = Closer.create()) {
-            final InputStream in;
+        return downloader;
+    }
+
+    private boolean isStored(final URI uri)
+    {
+        return store != null && storedSchemes.contains(uri.getScheme());
+    }
+
+    @Nullable
+    private JsonNode readStored(final URI uri)
+    {
+        if (!isStored(uri))
+            return null;
 
+        try {
+            final byte[] content = store.load(uri);
+            return content == null ? null
+                : read(uri, new ByteArrayInputStream(content));
+        } catch (IOException | ProcessingException ignored) {
+            return null;
+        }
+    }
+
+    private JsonNode readAndStore(final URI uri, final byte[] content)
+        throws ProcessingException
+    {
+        final JsonNode ret = read(uri, new ByteArrayInputStream(content));
+
+        if (isStored(uri))
             try {
-                in = closer.register(downloader.fetch(uri));
-                return reader.fromInputStream(in);
-            } catch (JsonMappingException e) {
-                throw new ProcessingException(new ProcessingMessage()
-                    .setMessage(e.getOriginalMessage()).put("uri", uri));
-            } catch (JsonParseException e) {
-                throw new ProcessingException(new ProcessingMessage()
-                    .setMessage(BUNDLE.getMessage("uriManager.uriNotJson"))
-                    .putArgument("uri", uri)
-                    .put("parsingMessage", e.getOriginalMessage()));
-            } catch (IOException e) {
-                throw new ProcessingException(new ProcessingMessage()
-                    .setMessage(BUNDLE.getMessage("uriManager.uriIOError"))
-                    .putArgument("uri", uri)
-                    .put("exceptionMessage", e.getMessage()));
+                store.store(uri, content);
+            } catch (IOException ignored) {
+                // Storing is best effort
             }
+
+        return ret;
+    }
+
+    private JsonNode read(final URI uri, final InputStream in)
+        throws ProcessingException
+    {
+        final PushbackInputStream stream
+            = new PushbackInputStream(in, ContentFormat.DETECTION_LENGTH);
+
+        try {
+            return getReader(uri, stream).fromInputStream(stream);
+        } catch (JsonMappingException e) {
+            throw new ProcessingException(new ProcessingMessage()
+                .setMessage(e.getOriginalMessage()).put("uri", uri));
+        } catch (JsonParseException e) {
+            throw new ProcessingException(new ProcessingMessage()
+                .setMessage(BUNDLE.getMessage("uriManager.uriNotJson"))
+                .putArgument("uri", uri)
+                .put("parsingMessage", e.getOriginalMessage()));
         } catch (IOException e) {
-            throw new IllegalStateException(e);
+            throw ioError(uri, e);
+        }
+    }
+
+    private JsonNodeReader getReader(final URI uri,
+        final PushbackInputStream in)
+        throws IOException
+    {
+        ContentFormat format = contentFormats.get(uri.getScheme());
+
+        if (format == null) {
+            final byte[] head = new byte[ContentFormat.DETECTION_LENGTH];
+            int length = 0;
+            int count;
+            while (length < head.length) {
+                count = in.read(head, length, head.length - length);
+                if (count == -1)
+                    break;
+                length += count;
+            }
+            in.unread(head, 0, length);
+            format = ContentFormat.detect(head, length);
+        }
+
+        switch (format) {
+            case SMILE:
+                return smileReader;
+            case CBOR:
+                return cborReader;
+            default:
+                return reader;
         }
     }
+
+    private static JsonNodeReader binaryReader(final JsonFactory factory,
+        final Set<JsonParser.Feature> features)
+    {
+        final ObjectMapper mapper = new ObjectMapper(factory)
+            .setNodeFactory(JacksonUtils.nodeFactory())
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+        for (final JsonParser.Feature feature: features)
+            mapper.configure(feature, true);
+        return new JsonNodeReader(mapper);
+    }
+
+    private static ProcessingException ioError(final URI uri,
+        final IOException e)
+    {
+        return new ProcessingException(new ProcessingMessage()
+            .setMessage(BUNDLE.getMessage("uriManager.uriIOError"))
+            .putArgument("uri", uri)
+            .put("exceptionMessage", e.getMessage()));
+    }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load.bundle;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonschema.SchemaVersion;
+import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
+import com.github.fge.jsonschema.core.load.configuration.LoadingConfigurationBuilder;
+import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary bundle of schemas
+ *
+ * <p>A bundle is a <a
+ * href="https://github.com/FasterXML/smile-format-specification">Smile</a>
+ * stream made of a header, which contains the format version and the list of
+ * URIs of bundled schemas, followed by the schemas themselves in the same
+ * order. It can therefore be loaded in one sequential read, and without any
+ * JSON text parsing.</p>
+ *
+ * <p>Bundles are typically built at build time using {@link #main(String...)},
+ * and loaded using {@link
+ * LoadingConfigurationBuilder#preloadBundle(InputStream)}.</p>
+ */
+public final class SchemaBundle
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaCoreMessageBundle.class);
+
+    private static final String FORMAT = "json-schema-bundle";
+    private static final int VERSION = 1;
+
+    private static final ObjectMapper MAPPER;
+
+    static {
+        final SmileFactory factory = new SmileFactory();
+        factory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        factory.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        MAPPER = new ObjectMapper(factory)
+            .setNodeFactory(JacksonUtils.nodeFactory())
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
+
+    private SchemaBundle()
+    {
+    }
+
+    /**
+     * Write a bundle
+     *
+     * <p>The output stream is neither flushed nor closed.</p>
+     *
+     * @param schemas the schemas, keyed by their URI
+     * @param out the output stream
+     * @throws IOException failed to write to the output stream
+     * @throws NullPointerException schemas or output stream is null
+     */
+    public static void write(final Map<URI, JsonNode> schemas,
+        final OutputStream out)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(schemas, "schemaBundle.nullSchemas");
+        BUNDLE.checkNotNull(out, "schemaBundle.nullOutput");
+
+        try (
+            final JsonGenerator generator = MAPPER.getFactory()
+                .createGenerator(out);
+        ) {
+            generator.writeStartObject();
+            generator.writeStringField("format", FORMAT);
+            generator.writeNumberField("version", VERSION);
+            generator.writeArrayFieldStart("uris");
+            for (final URI uri: schemas.keySet())
+                generator.writeString(uri.toString());
+            generator.writeEndArray();
+            generator.writeEndObject();
+            for (final JsonNode schema: schemas.values())
+                MAPPER.writeTree(generator, schema);
+        }
+    }
+
+    /**
+     * Read a bundle
+     *
+     * <p>The input stream is not closed.</p>
+     *
+     * @param in the input stream
+     * @return the schemas of the bundle, keyed by their URI, in bundle order
+     * @throws IOException failed to read from the input stream, or the input
+     * is not a valid bundle
+     * @throws NullPointerException input stream is null
+     */
+    public static Map<URI, JsonNode> read(final InputStream in)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(in, "schemaBundle.nullInput");
+
+        try (
+            final JsonParser parser = MAPPER.getFactory().createParser(in);
+        ) {
+            final List<URI> uris = readHeader(parser);
+            final Map<URI, JsonNode> ret
+                = Maps.newLinkedHashMapWithExpectedSize(uris.size());
+
+            for (final URI uri: uris) {
+                if (parser.nextToken() == null)
+                    throw new IOException(
+                        BUNDLE.getMessage("schemaBundle.truncated"));
+                ret.put(uri, MAPPER.<JsonNode>readTree(parser));
+            }
+            return Collections.unmodifiableMap(ret);
+        }
+    }
+
+    /**
+     * Build a bundle out of directories of schema files
+     *
+     * <p>Arguments are the path of the bundle to write, the base URI and one
+     * or more directories; schema files are collected as {@link
+     * LoadingConfigurationBuilder#preloadDirectory(Path, String)} would.</p>
+     *
+     * @param args the arguments
+     * @throws IOException failed to read schemas or to write the bundle
+     */
+    public static void main(final String... args)
+        throws IOException
+    {
+        if (args.length < 3) {
+            System.err.println("Usage: " + SchemaBundle.class.getName()
+                + " <bundle> <baseURI> <directory> [<directory>...]");
+            System.exit(2);
+        }
+
+        final LoadingConfigurationBuilder builder
+            = LoadingConfiguration.newBuilder();
+        for (int i = 2; i < args.length; i++)
+            builder.preloadDirectory(Paths.get(args[i]), args[1]);
+
+        final Map<URI, JsonNode> schemas
+            = Maps.newLinkedHashMap(builder.freeze().getPreloadedSchemas());
+        for (final SchemaVersion version: SchemaVersion.values())
+            schemas.remove(version.getLocation());
+
+        try (
+            final OutputStream out = Files.newOutputStream(Paths.get(args[0]));
+        ) {
+            write(schemas, out);
+        }
+    }
+
+    private static List<URI> readHeader(final JsonParser parser)
+        throws IOException
+    {
+        if (parser.nextToken() != JsonToken.START_OBJECT)
+            throw new IOException(BUNDLE.getMessage("schemaBundle.notABundle"));
+
+        final JsonNode header = MAPPER.readTree(parser);
+        if (!FORMAT.equals(header.path("format").textValue()))
+            throw new IOException(BUNDLE.getMessage("schemaBundle.notABundle"));
+
+        final JsonNode version = header.path("version");
+        if (version.intValue() != VERSION)
+            throw new IOException(BUNDLE.printf(
+                "schemaBundle.unsupportedVersion", version));
+
+        final List<URI> ret = Lists.newArrayList();
+        try {
+            for (final JsonNode node: header.path("uris"))
+                ret.add(URI.create(node.textValue()));
+        } catch (RuntimeException ignored) {
+            throw new IOException(BUNDLE.getMessage("schemaBundle.notABundle"));
+        }
+        return ret;
+    }
+}
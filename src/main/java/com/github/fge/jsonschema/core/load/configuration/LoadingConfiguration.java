@@ -26,18 +26,26 @@ import com.github.fge.Frozen;
 import com.github.fge.Thawed;
 import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.JsonNodeReader;
+import com.github.fge.jsonschema.core.load.ContentFormat;
 import com.github.fge.jsonschema.core.load.Dereferencing;
 import com.github.fge.jsonschema.core.load.SchemaLoader;
 import com.github.fge.jsonschema.core.load.URIManager;
 import com.github.fge.jsonschema.core.load.download.URIDownloader;
+import com.github.fge.jsonschema.core.load.store.SchemaStore;
 import com.github.fge.jsonschema.core.load.uri.URITranslatorConfiguration;
 import com.github.fge.jsonschema.core.tree.CanonicalSchemaTree;
 import com.github.fge.jsonschema.core.tree.InlineSchemaTree;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
+import javax.annotation.Nullable;
 import java.net.URI;
 import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Loading configuration (frozen instance)
@@ -96,6 +104,17 @@ public final class LoadingConfiguration
      */
     final int cacheSize;
 
+    /**
+     * Time after which cached schemas expire, in nanoseconds; -1 if never
+     */
+    final long expireAfterWrite;
+
+    /**
+     * Time after which cached schemas are refreshed, in nanoseconds; -1 if
+     * never
+     */
+    final long refreshAfterWrite;
+
     /**
      * Dereferencing mode
      *
@@ -105,6 +124,30 @@ public final class LoadingConfiguration
      */
     final Dereferencing dereferencing;
 
+    /**
+     * Executor for schema prefetching
+     *
+     * @see SchemaLoader#prefetch(Iterable)
+     */
+    final Executor prefetchExecutor;
+
+    /**
+     * Second level store for fetched schemas, or {@code null} if none
+     *
+     * @see URIManager
+     */
+    final SchemaStore schemaStore;
+
+    /**
+     * Set of URI schemes whose content is stored in the second level store
+     */
+    final Set<String> storedSchemes;
+
+    /**
+     * Map of content formats for URI schemes
+     */
+    final Map<String, ContentFormat> contentFormats;
+
     /**
      * Map of preloaded schemas
      */
@@ -162,20 +205,28 @@ public final class LoadingConfiguration
         downloaders = builder.downloaders.build();
         translatorCfg = builder.translatorCfg;
         dereferencing = builder.dereferencing;
+        prefetchExecutor = builder.prefetchExecutor;
+        schemaStore = builder.schemaStore;
+        storedSchemes = ImmutableSet.copyOf(builder.storedSchemes);
+        contentFormats = ImmutableMap.copyOf(builder.contentFormats);
         preloadedSchemas = ImmutableMap.copyOf(builder.preloadedSchemas);
         parserFeatures = EnumSet.copyOf(builder.parserFeatures);
-        reader = buildReader();
+        reader = buildReader(parserFeatures);
         cacheSize = builder.cacheSize;
+        expireAfterWrite = builder.expireAfterWrite;
+        refreshAfterWrite = builder.refreshAfterWrite;
     }
 
     /**
      * Construct a {@link JsonNodeReader}
      *
+     * @param parserFeatures the parser features to enable
      * @return a JSON reader
      * @see JsonNodeReader
      * @see JacksonUtils#newMapper()
      */
-    private JsonNodeReader buildReader()
+    static JsonNodeReader buildReader(
+        final Set<JsonParser.Feature> parserFeatures)
     {
         final ObjectMapper mapper = JacksonUtils.newMapper();
 
@@ -212,6 +263,54 @@ public final class LoadingConfiguration
         return dereferencing;
     }
 
+    /**
+     * Return the executor used to prefetch schemas
+     *
+     * @return the executor
+     * @see SchemaLoader#prefetch(Iterable)
+     */
+    public Executor getPrefetchExecutor()
+    {
+        return prefetchExecutor;
+    }
+
+    /**
+     * Return the second level store for fetched schemas, if any
+     *
+     * @return the store, or {@code null} if none
+     */
+    @Nullable
+    public SchemaStore getSchemaStore()
+    {
+        return schemaStore;
+    }
+
+    /**
+     * Return the set of URI schemes whose content is stored in the second
+     * level store
+     *
+     * @return an immutable set of schemes
+     * @see LoadingConfigurationBuilder#addStoredScheme(String)
+     */
+    public Set<String> getStoredSchemes()
+    {
+        return storedSchemes;
+    }
+
+    /**
+     * Return the map of content formats for URI schemes
+     *
+     * <p>The format of content fetched for URIs whose scheme is not in this
+     * map is detected.</p>
+     *
+     * @return an immutable map of content formats
+     * @see ContentFormat
+     */
+    public Map<String, ContentFormat> getContentFormats()
+    {
+        return contentFormats;
+    }
+
     /**
      * Return the map of preloaded schemas
      *
@@ -232,6 +331,17 @@ public final class LoadingConfiguration
     {
         return reader;
     }
+
+    /**
+     * Return the set of JsonParser features enabled while loading schemas
+     *
+     * @return an immutable set of features
+     * @see LoadingConfigurationBuilder#addParserFeature(JsonParser.Feature)
+     */
+    public Set<JsonParser.Feature> getParserFeatures()
+    {
+        return Sets.immutableEnumSet(parserFeatures);
+    }
     
     /**
      * Return if we want to cache loaded schema or not
@@ -256,6 +366,29 @@ public final class LoadingConfiguration
         return cacheSize;
     }
 
+    /**
+     * Return the time after which cached schemas expire
+     *
+     * @return the time in nanoseconds, or -1 if cached schemas never expire
+     * @see LoadingConfigurationBuilder#setExpireAfterWrite(long, TimeUnit)
+     */
+    public long getExpireAfterWriteNanos()
+    {
+        return expireAfterWrite;
+    }
+
+    /**
+     * Return the time after which cached schemas are refreshed
+     *
+     * @return the time in nanoseconds, or -1 if cached schemas are never
+     * refreshed
+     * @see LoadingConfigurationBuilder#setRefreshAfterWrite(long, TimeUnit)
+     */
+    public long getRefreshAfterWriteNanos()
+    {
+        return refreshAfterWrite;
+    }
+
     /**
      * Return a thawed version of this loading configuration
      *
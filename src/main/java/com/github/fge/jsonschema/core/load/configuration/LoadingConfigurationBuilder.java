@@ -24,20 +24,35 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.github.fge.Thawed;
 import com.github.fge.jsonschema.SchemaVersion;
 import com.github.fge.jsonschema.core.exceptions.JsonReferenceException;
+import com.github.fge.jsonschema.core.load.ContentFormat;
 import com.github.fge.jsonschema.core.load.Dereferencing;
 import com.github.fge.jsonschema.core.load.SchemaLoader;
 import com.github.fge.jsonschema.core.load.URIManager;
+import com.github.fge.jsonschema.core.load.bundle.SchemaBundle;
 import com.github.fge.jsonschema.core.load.uri.URITranslatorConfiguration;
 import com.github.fge.jsonschema.core.load.download.URIDownloader;
+import com.github.fge.jsonschema.core.load.store.FileSchemaStore;
+import com.github.fge.jsonschema.core.load.store.SchemaStore;
 import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
 import com.github.fge.jsonschema.core.ref.JsonRef;
+import com.github.fge.jsonschema.core.util.URIUtils;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Path;
 import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import static com.fasterxml.jackson.core.JsonParser.*;
 
@@ -60,6 +75,13 @@ public final class LoadingConfigurationBuilder
     
     private static final int DEFAULT_CACHE_SIZE = 512;
 
+    /**
+     * Default schemes whose content is stored in the schema store, if any:
+     * remote schemes only
+     */
+    private static final Set<String> DEFAULT_STORED_SCHEMES
+        = ImmutableSet.of("http", "https", "ftp");
+
     static {
         DEFAULT_PARSER_FEATURES = EnumSet.noneOf(JsonParser.Feature.class);
 
@@ -84,6 +106,17 @@ public final class LoadingConfigurationBuilder
      */
     int cacheSize = DEFAULT_CACHE_SIZE;
 
+    /**
+     * Time after which cached schemas expire, in nanoseconds; -1 if never
+     */
+    long expireAfterWrite = -1L;
+
+    /**
+     * Time after which cached schemas are refreshed, in nanoseconds; -1 if
+     * never
+     */
+    long refreshAfterWrite = -1L;
+
     /**
      * Dereferencing mode
      *
@@ -91,6 +124,38 @@ public final class LoadingConfigurationBuilder
      */
     Dereferencing dereferencing;
 
+    /**
+     * Executor for schema prefetching
+     *
+     * <p>By default, schemas are prefetched in the calling thread.</p>
+     *
+     * @see SchemaLoader#prefetch(Iterable)
+     */
+    Executor prefetchExecutor;
+
+    /**
+     * Second level store for fetched schemas (none by default)
+     *
+     * @see SchemaStore
+     */
+    SchemaStore schemaStore;
+
+    /**
+     * URI schemes whose content is stored in the second level store
+     *
+     * @see #addStoredScheme(String)
+     */
+    final Set<String> storedSchemes;
+
+    /**
+     * Content formats for URI schemes
+     *
+     * <p>By default, the format of fetched content is detected.</p>
+     *
+     * @see ContentFormat
+     */
+    final Map<String, ContentFormat> contentFormats;
+
     /**
      * List of preloaded schemas
      *
@@ -115,6 +180,9 @@ public final class LoadingConfigurationBuilder
     {
         translatorCfg = URITranslatorConfiguration.byDefault();
         dereferencing = Dereferencing.CANONICAL;
+        prefetchExecutor = MoreExecutors.directExecutor();
+        storedSchemes = Sets.newHashSet(DEFAULT_STORED_SCHEMES);
+        contentFormats = Maps.newHashMap();
         preloadedSchemas = Maps.newHashMap();
         for (final SchemaVersion version: SchemaVersion.values())
             preloadedSchemas.put(version.getLocation(), version.getSchema());
@@ -132,9 +200,15 @@ public final class LoadingConfigurationBuilder
         downloaders.putAll(cfg.downloaders);
         translatorCfg = cfg.translatorCfg;
         dereferencing = cfg.dereferencing;
+        prefetchExecutor = cfg.prefetchExecutor;
+        schemaStore = cfg.schemaStore;
+        storedSchemes = Sets.newHashSet(cfg.storedSchemes);
+        contentFormats = Maps.newHashMap(cfg.contentFormats);
         preloadedSchemas = Maps.newHashMap(cfg.preloadedSchemas);
         parserFeatures = EnumSet.copyOf(cfg.parserFeatures);
         cacheSize = cfg.cacheSize;
+        expireAfterWrite = cfg.expireAfterWrite;
+        refreshAfterWrite = cfg.refreshAfterWrite;
     }
     
     /**
@@ -169,6 +243,56 @@ public final class LoadingConfigurationBuilder
         this.cacheSize = cacheSize;
         return this;
     }
+
+    /**
+     * Make cached schemas expire after a given time
+     *
+     * <p>A schema is fetched again when it is next needed if it has been
+     * loaded more than this time ago; if a {@link SchemaStore} is set, the
+     * expired schema is removed from it. By default, cached schemas never
+     * expire.</p>
+     *
+     * @param duration the time
+     * @param unit the unit of the time
+     * @return this
+     * @throws IllegalArgumentException time is not strictly positive
+     * @throws NullPointerException unit is null
+     * @see SchemaLoader#invalidate(URI)
+     */
+    public LoadingConfigurationBuilder setExpireAfterWrite(final long duration,
+        final TimeUnit unit)
+    {
+        BUNDLE.checkArgument(duration > 0L, "loadingCfg.invalidDuration");
+        expireAfterWrite = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Refresh cached schemas after a given time
+     *
+     * <p>A schema is fetched again when it is next needed if it has been
+     * loaded more than this time ago; it is fetched in the background, using
+     * the executor set with {@link #setPrefetchExecutor(Executor)} or, if
+     * none is set, a shared pool of daemon threads. The cached schema is used
+     * until the new one is loaded (or if it fails to load). By default, cached
+     * schemas are never refreshed.</p>
+     *
+     * <p>Refreshing always fetches schemas, it does not use the {@link
+     * SchemaStore}, if any.</p>
+     *
+     * @param duration the time
+     * @param unit the unit of the time
+     * @return this
+     * @throws IllegalArgumentException time is not strictly positive
+     * @throws NullPointerException unit is null
+     */
+    public LoadingConfigurationBuilder setRefreshAfterWrite(final long duration,
+        final TimeUnit unit)
+    {
+        BUNDLE.checkArgument(duration > 0L, "loadingCfg.invalidDuration");
+        refreshAfterWrite = unit.toNanos(duration);
+        return this;
+    }
     
     /**
      * Add a new URI downloader
@@ -202,6 +326,31 @@ public final class LoadingConfigurationBuilder
         return this;
     }
 
+    /**
+     * Set the format of content fetched for a given URI scheme
+     *
+     * <p>By default, the format is detected from the first bytes of the
+     * content (see {@link ContentFormat}); set a format if you need to read
+     * content which cannot be detected, such as Smile content without a
+     * header.</p>
+     *
+     * @param scheme the scheme
+     * @param format the format
+     * @return this
+     * @throws NullPointerException scheme or format is null
+     * @throws IllegalArgumentException illegal scheme
+     */
+    public LoadingConfigurationBuilder setContentFormat(final String scheme,
+        final ContentFormat format)
+    {
+        BUNDLE.checkNotNull(scheme, "loadingCfg.nullScheme");
+        BUNDLE.checkNotNull(format, "loadingCfg.nullContentFormat");
+        final String key = URIUtils.normalizeScheme(scheme);
+        URIUtils.checkScheme(key);
+        contentFormats.put(key, format);
+        return this;
+    }
+
     public LoadingConfigurationBuilder setURITranslatorConfiguration(
         final URITranslatorConfiguration translatorCfg)
     {
@@ -226,6 +375,91 @@ public final class LoadingConfigurationBuilder
         return this;
     }
 
+    /**
+     * Set the executor used to prefetch schemas
+     *
+     * <p>By default, schemas are prefetched sequentially, in the thread
+     * calling {@link SchemaLoader#prefetch(Iterable)}; use an executor with
+     * several threads to fetch them concurrently. The executor is not shut
+     * down by the loader.</p>
+     *
+     * <p>This executor is also used by {@link SchemaLoader#getAsync(URI)} to
+     * fetch schemas whose downloader is not asynchronous; if no executor is
+     * set, these are fetched using a shared pool of background daemon
+     * threads, so that they never block the calling thread.</p>
+     *
+     * @param executor the executor
+     * @return this
+     * @throws NullPointerException executor is null
+     */
+    public LoadingConfigurationBuilder setPrefetchExecutor(
+        final Executor executor)
+    {
+        prefetchExecutor = BUNDLE.checkNotNull(executor,
+            "loadingCfg.nullExecutor");
+        return this;
+    }
+
+    /**
+     * Set a second level store for fetched schemas
+     *
+     * <p>Fetched schemas are stored in it, and looked up there before being
+     * fetched again, including by other loaders and after a restart. There
+     * is no store by default.</p>
+     *
+     * <p>Only schemas fetched for remote schemes ({@code http}, {@code https}
+     * and {@code ftp}) are stored by default; see {@link
+     * #addStoredScheme(String)}.</p>
+     *
+     * @param schemaStore the store
+     * @return this
+     * @throws NullPointerException store is null
+     * @see FileSchemaStore
+     */
+    public LoadingConfigurationBuilder setSchemaStore(
+        final SchemaStore schemaStore)
+    {
+        this.schemaStore = BUNDLE.checkNotNull(schemaStore,
+            "loadingCfg.nullSchemaStore");
+        return this;
+    }
+
+    /**
+     * Store schemas fetched for a given URI scheme in the schema store
+     *
+     * <p>By default, only remote schemes are stored. Local content, such as
+     * {@code file} or {@code resource} URIs, is cheap to read again, and a
+     * stored copy would hide changes made to it.</p>
+     *
+     * @param scheme the scheme
+     * @return this
+     * @throws NullPointerException scheme is null
+     * @throws IllegalArgumentException illegal scheme
+     * @see #setSchemaStore(SchemaStore)
+     */
+    public LoadingConfigurationBuilder addStoredScheme(final String scheme)
+    {
+        BUNDLE.checkNotNull(scheme, "loadingCfg.nullScheme");
+        final String key = URIUtils.normalizeScheme(scheme);
+        URIUtils.checkScheme(key);
+        storedSchemes.add(key);
+        return this;
+    }
+
+    /**
+     * Do not store schemas fetched for a given URI scheme in the schema store
+     *
+     * @param scheme the scheme
+     * @return this
+     * @see #addStoredScheme(String)
+     */
+    public LoadingConfigurationBuilder removeStoredScheme(final String scheme)
+    {
+        if (scheme != null)
+            storedSchemes.remove(URIUtils.normalizeScheme(scheme));
+        return this;
+    }
+
     /**
      * Preload a schema at a given URI
      *
@@ -270,6 +504,134 @@ public final class LoadingConfigurationBuilder
         return preloadSchema(node.textValue(), schema);
     }
 
+    /**
+     * Preload all schemas in a directory tree
+     *
+     * <p>All files whose name ends with {@code .json} in this directory and
+     * its subdirectories are read and parsed in parallel, using the JsonParser
+     * features enabled at the time of the call. Each schema is registered at
+     * the URI obtained by resolving its path relative to the directory against
+     * the base URI, unless it has a top level {@code id}: in this case, this
+     * id is resolved against that URI instead.</p>
+     *
+     * <p>For instance, with base URI {@code http://my.site/schemas/}, file
+     * {@code a/b.json} with no {@code id} is registered at {@code
+     * http://my.site/schemas/a/b.json}.</p>
+     *
+     * <p>No schema is registered if any of them fails to load.</p>
+     *
+     * @param directory the directory
+     * @param baseURI the base URI
+     * @return this
+     * @throws IOException a file cannot be read, or is not valid JSON
+     * @throws NullPointerException directory or base URI is null
+     * @throws IllegalArgumentException base URI is not an absolute JSON
+     * Reference ending with a {@code /}; a schema {@code id} is not a valid
+     * JSON Reference; a schema already exists at one of the URIs
+     * @see #preloadSchema(String, JsonNode)
+     */
+    public LoadingConfigurationBuilder preloadDirectory(final Path directory,
+        final String baseURI)
+        throws IOException
+    {
+        try (
+            final SchemaPreloader preloader = newPreloader(baseURI);
+        ) {
+            preloader.addDirectory(directory);
+            return preloadAll(preloader);
+        }
+    }
+
+    /**
+     * Preload all schemas in a zip or jar archive
+     *
+     * <p>This works like {@link #preloadDirectory(Path, String)}, with paths
+     * being those of the archive entries.</p>
+     *
+     * @param archive the path to the archive
+     * @param baseURI the base URI
+     * @return this
+     * @throws IOException the archive cannot be read, or an entry is not
+     * valid JSON
+     * @throws NullPointerException archive or base URI is null
+     * @throws IllegalArgumentException see {@link #preloadDirectory(Path,
+     * String)}
+     */
+    public LoadingConfigurationBuilder preloadArchive(final Path archive,
+        final String baseURI)
+        throws IOException
+    {
+        try (
+            final SchemaPreloader preloader = newPreloader(baseURI);
+        ) {
+            preloader.addArchive(archive);
+            return preloadAll(preloader);
+        }
+    }
+
+    /**
+     * Preload all schemas under a classpath prefix
+     *
+     * <p>This works like {@link #preloadDirectory(Path, String)}, with paths
+     * being relative to the prefix. All classpath entries containing the
+     * prefix, directories or jars, are considered; note that a prefix is
+     * only found in a jar if this jar has a directory entry for it.</p>
+     *
+     * @param prefix the prefix (for instance, {@code schemas/})
+     * @param baseURI the base URI
+     * @return this
+     * @throws IOException resources cannot be read, or are not valid JSON
+     * @throws NullPointerException prefix or base URI is null
+     * @throws IllegalArgumentException see {@link #preloadDirectory(Path,
+     * String)}
+     */
+    public LoadingConfigurationBuilder preloadClasspath(final String prefix,
+        final String baseURI)
+        throws IOException
+    {
+        try (
+            final SchemaPreloader preloader = newPreloader(baseURI);
+        ) {
+            preloader.addClasspath(prefix);
+            return preloadAll(preloader);
+        }
+    }
+
+    /**
+     * Preload all schemas of a bundle
+     *
+     * <p>The bundle is read sequentially, and its schemas are registered at
+     * the URIs it records. This is much faster than parsing JSON text; see
+     * {@link SchemaBundle} for how to build a bundle. The input stream is not
+     * closed.</p>
+     *
+     * <p>No schema is registered if the bundle fails to load.</p>
+     *
+     * @param in the input stream to read the bundle from
+     * @return this
+     * @throws IOException failed to read the bundle
+     * @throws NullPointerException input stream is null
+     * @throws IllegalArgumentException a schema already exists at one of the
+     * URIs of the bundle
+     */
+    public LoadingConfigurationBuilder preloadBundle(final InputStream in)
+        throws IOException
+    {
+        final Map<URI, JsonNode> schemas = Maps.newHashMap();
+
+        URI key;
+
+        for (final Map.Entry<URI, JsonNode> entry:
+            SchemaBundle.read(in).entrySet()) {
+            key = getLocator(entry.getKey().toString());
+            BUNDLE.checkArgumentPrintf(!preloadedSchemas.containsKey(key)
+                && schemas.put(key, entry.getValue()) == null,
+                "loadingCfg.duplicateURI", key);
+        }
+        preloadedSchemas.putAll(schemas);
+        return this;
+    }
+
     /**
      * Add a JsonParser feature
      *
@@ -320,6 +682,32 @@ public final class LoadingConfigurationBuilder
         return new LoadingConfiguration(this);
     }
 
+    private SchemaPreloader newPreloader(final String baseURI)
+    {
+        return new SchemaPreloader(
+            LoadingConfiguration.buildReader(parserFeatures), baseURI);
+    }
+
+    private LoadingConfigurationBuilder preloadAll(
+        final SchemaPreloader preloader)
+        throws IOException
+    {
+        final ForkJoinPool pool = new ForkJoinPool();
+        final Map<URI, JsonNode> schemas;
+
+        try {
+            schemas = preloader.load(pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        for (final URI key: schemas.keySet())
+            BUNDLE.checkArgumentPrintf(!preloadedSchemas.containsKey(key),
+                "loadingCfg.duplicateURI", key);
+        preloadedSchemas.putAll(schemas);
+        return this;
+    }
+
     private static URI getLocator(final String input)
     {
         final JsonRef ref;
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load.configuration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonNodeReader;
+import com.github.fge.jsonschema.core.exceptions.JsonReferenceException;
+import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
+import com.github.fge.jsonschema.core.ref.JsonRef;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Bulk schema preloading
+ *
+ * <p>Schema files are collected from directories, zip/jar archives or
+ * classpath prefixes, then read and parsed in parallel using a {@link
+ * ForkJoinPool}. Only files whose name ends with {@code .json} are
+ * considered.</p>
+ *
+ * <p>Each schema is registered at the URI obtained by resolving its path
+ * relative to the collected location against the base URI; if the schema has
+ * a top level {@code id}, this id is resolved against that URI, which means an
+ * absolute {@code id} always wins.</p>
+ *
+ * @see LoadingConfigurationBuilder#preloadDirectory(Path, String)
+ * @see LoadingConfigurationBuilder#preloadArchive(Path, String)
+ * @see LoadingConfigurationBuilder#preloadClasspath(String, String)
+ */
+final class SchemaPreloader
+    implements AutoCloseable
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaCoreMessageBundle.class);
+
+    private static final String EXTENSION = ".json";
+
+    private final JsonNodeReader reader;
+    private final URI baseURI;
+    private final List<Source> sources = Lists.newArrayList();
+    private final Closer closer = Closer.create();
+
+    SchemaPreloader(final JsonNodeReader reader, final String baseURI)
+    {
+        BUNDLE.checkNotNull(baseURI, "loadingCfg.nullBaseURI");
+        final JsonRef ref;
+        try {
+            ref = JsonRef.fromString(baseURI);
+        } catch (JsonReferenceException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        final URI uri = ref.getLocator();
+        BUNDLE.checkArgumentPrintf(ref.isAbsolute(), "jsonRef.notAbsolute",
+            ref);
+        final String path = uri.getPath();
+        BUNDLE.checkArgumentPrintf(path != null && path.endsWith("/"),
+            "uriChecks.noEndingSlash", uri);
+        this.reader = reader;
+        this.baseURI = uri;
+    }
+
+    /**
+     * Collect all schema files in a directory tree
+     *
+     * @param directory the directory
+     * @throws IOException directory cannot be walked
+     */
+    void addDirectory(final Path directory)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(directory, "loadingCfg.nullPath");
+        walk(directory);
+    }
+
+    /**
+     * Collect all schema files in a zip or jar archive
+     *
+     * @param archive the path to the archive
+     * @throws IOException archive cannot be opened
+     */
+    void addArchive(final Path archive)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(archive, "loadingCfg.nullPath");
+        addArchive(closer.register(new ZipFile(archive.toFile())), "");
+    }
+
+    /**
+     * Collect all schema files under a classpath prefix
+     *
+     * <p>All resources matching the prefix are considered, whether they are
+     * directories or jar entries.</p>
+     *
+     * @param prefix the prefix
+     * @throws IOException resources cannot be enumerated or opened
+     */
+    void addClasspath(final String prefix)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(prefix, "loadingCfg.nullPath");
+        String name = prefix.startsWith("/") ? prefix.substring(1) : prefix;
+        if (!name.isEmpty() && !name.endsWith("/"))
+            name += '/';
+
+        final Enumeration<URL> urls = SchemaPreloader.class.getClassLoader()
+            .getResources(name);
+
+        URL url;
+        URLConnection connection;
+        JarURLConnection jar;
+        String entry;
+
+        while (urls.hasMoreElements()) {
+            url = urls.nextElement();
+            if ("file".equals(url.getProtocol())) {
+                try {
+                    walk(Paths.get(url.toURI()));
+                } catch (URISyntaxException e) {
+                    throw new IOException(e);
+                }
+                continue;
+            }
+            connection = url.openConnection();
+            if (!(connection instanceof JarURLConnection))
+                throw new IOException(BUNDLE.printf(
+                    "loadingCfg.unsupportedResource", url));
+            jar = (JarURLConnection) connection;
+            jar.setUseCaches(false);
+            entry = jar.getEntryName();
+            addArchive(closer.register(jar.getJarFile()),
+                entry == null ? "" : entry);
+        }
+    }
+
+    /**
+     * Read and parse all collected schemas
+     *
+     * @param pool the pool to use
+     * @return a map of schemas, keyed by their URI
+     * @throws IOException a schema cannot be read or parsed
+     * @throws IllegalArgumentException a schema has an invalid {@code id}, or
+     * two schemas have the same URI
+     */
+    Map<URI, JsonNode> load(final ForkJoinPool pool)
+        throws IOException
+    {
+        final List<Future<Map.Entry<URI, JsonNode>>> futures
+            = pool.invokeAll(sources);
+        final Map<URI, JsonNode> ret
+            = Maps.newHashMapWithExpectedSize(futures.size());
+
+        Map.Entry<URI, JsonNode> entry;
+
+        for (final Future<Map.Entry<URI, JsonNode>> future: futures) {
+            entry = get(future);
+            BUNDLE.checkArgumentPrintf(
+                ret.put(entry.getKey(), entry.getValue()) == null,
+                "loadingCfg.duplicateURI", entry.getKey());
+        }
+        return ret;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        closer.close();
+    }
+
+    private void walk(final Path directory)
+        throws IOException
+    {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile(final Path file,
+                final BasicFileAttributes attrs)
+            {
+                if (!attrs.isRegularFile())
+                    return FileVisitResult.CONTINUE;
+                final StringBuilder sb = new StringBuilder();
+                for (final Path element: directory.relativize(file)) {
+                    if (sb.length() > 0)
+                        sb.append('/');
+                    sb.append(element.toString());
+                }
+                final String path = sb.toString();
+                if (path.endsWith(EXTENSION))
+                    sources.add(new Source(path)
+                    {
+                        @Override
+                        InputStream open()
+                            throws IOException
+                        {
+                            return Files.newInputStream(file);
+                        }
+                    });
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void addArchive(final ZipFile zip, final String prefix)
+    {
+        final Enumeration<? extends ZipEntry> entries = zip.entries();
+
+        String name;
+
+        while (entries.hasMoreElements()) {
+            final ZipEntry entry = entries.nextElement();
+            name = entry.getName();
+            if (entry.isDirectory() || !name.startsWith(prefix)
+                || !name.endsWith(EXTENSION))
+                continue;
+            sources.add(new Source(name.substring(prefix.length()))
+            {
+                @Override
+                InputStream open()
+                    throws IOException
+                {
+                    return zip.getInputStream(entry);
+                }
+            });
+        }
+    }
+
+    private static Map.Entry<URI, JsonNode> get(
+        final Future<Map.Entry<URI, JsonNode>> future)
+        throws IOException
+    {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            /*
+             * ForkJoinPool wraps checked exceptions thrown by callables, and
+             * may wrap them again when rethrowing them in another thread
+             */
+            while (cause.getClass() == RuntimeException.class
+                && cause.getCause() != null)
+                cause = cause.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private abstract class Source
+        implements Callable<Map.Entry<URI, JsonNode>>
+    {
+        private final String path;
+
+        private Source(final String path)
+        {
+            this.path = path;
+        }
+
+        abstract InputStream open()
+            throws IOException;
+
+        @Override
+        public final Map.Entry<URI, JsonNode> call()
+            throws IOException
+        {
+            final JsonNode schema;
+
+            try (
+                final InputStream in = open();
+            ) {
+                schema = reader.fromInputStream(in);
+            } catch (IOException e) {
+                throw new IOException(BUNDLE.printf(
+                    "loadingCfg.preloadFailure", path, e.getMessage()), e);
+            }
+
+            JsonRef ref;
+
+            /*
+             * The path is made explicitly relative: otherwise, a first
+             * segment containing a colon (for instance, "v1:a.json") would be
+             * parsed as a scheme
+             */
+            try {
+                ref = JsonRef.fromURI(baseURI.resolve(
+                    new URI(null, null, "./" + path, null)));
+                final JsonNode node = schema.path("id");
+                if (node.isTextual())
+                    ref = ref.resolve(JsonRef.fromString(node.textValue()));
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            } catch (JsonReferenceException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+            return Maps.immutableEntry(ref.getLocator(), schema);
+        }
+    }
+}
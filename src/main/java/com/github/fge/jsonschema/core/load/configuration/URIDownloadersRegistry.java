@@ -20,6 +20,7 @@
 package com.github.fge.jsonschema.core.load.configuration;
 
 import com.github.fge.jsonschema.core.load.download.DefaultURIDownloader;
+import com.github.fge.jsonschema.core.load.download.FileURIDownloader;
 import com.github.fge.jsonschema.core.load.download.ResourceURIDownloader;
 import com.github.fge.jsonschema.core.load.download.URIDownloader;
 import com.github.fge.jsonschema.core.util.ArgumentChecker;
@@ -51,7 +52,7 @@ final class URIDownloadersRegistry
         builder.put(scheme, downloader);
 
         scheme = "file";
-        downloader = DefaultURIDownloader.getInstance();
+        downloader = FileURIDownloader.getInstance();
         builder.put(scheme, downloader);
 
         scheme = "ftp";
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load.download;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A downloader for the {@code file} URI scheme
+ *
+ * <p>Unlike {@link DefaultURIDownloader}, this downloader does not go through
+ * {@link URL#openStream()}: files are read using NIO channels. Files up to
+ * {@link #MAP_THRESHOLD} bytes are read in full into an array of the exact
+ * size in one call, and the returned stream reads from this array directly;
+ * larger files are memory mapped instead, unless they are too large to be
+ * mapped at once (more than 2 GiB), in which case they are streamed.</p>
+ *
+ * <p>URIs which do not denote a path (for instance, URIs with an authority or
+ * a query) are reported as I/O errors.</p>
+ *
+ * <p>This is the default downloader for the {@code file} scheme.</p>
+ */
+public final class FileURIDownloader
+    implements URIDownloader
+{
+    /**
+     * Size from which files are memory mapped rather than read (1 MiB)
+     */
+    public static final long MAP_THRESHOLD = 1L << 20;
+
+    private static final URIDownloader INSTANCE = new FileURIDownloader();
+
+    private FileURIDownloader()
+    {
+    }
+
+    public static URIDownloader getInstance()
+    {
+        return INSTANCE;
+    }
+
+    @Override
+    public InputStream fetch(final URI source)
+        throws IOException
+    {
+        /*
+         * Paths.get() refuses URIs with a fragment, and loading URIs have an
+         * empty one
+         */
+        final Path path;
+        try {
+            path = Paths.get(URI.create(source.getScheme() + ':'
+                + source.getRawSchemeSpecificPart()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+
+        try (
+            final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ);
+        ) {
+            final long size = channel.size();
+
+            if (size > Integer.MAX_VALUE)
+                return Files.newInputStream(path);
+
+            if (size >= MAP_THRESHOLD) {
+                final MappedByteBuffer buffer
+                    = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+                return new ByteBufferInputStream(buffer);
+            }
+
+            final byte[] content = new byte[(int) size];
+            final ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) == -1)
+                    break;
+            return new ByteArrayInputStream(content, 0, buffer.position());
+        }
+    }
+
+    private static final class ByteBufferInputStream
+        extends InputStream
+    {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(final ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+        {
+            if (len == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            final int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(final long n)
+        {
+            final int count = (int) Math.max(0L,
+                Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available()
+        {
+            return buffer.remaining();
+        }
+    }
+}
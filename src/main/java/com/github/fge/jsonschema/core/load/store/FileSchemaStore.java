@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SchemaStore} storing content as files in a directory
+ *
+ * <p>Content for a URI is stored in two files, named after a hash of the URI:
+ * the content itself (with extension {@code .data}, since it may be JSON text,
+ * Smile or CBOR), and metadata (with extension {@code .meta}: the URI, the
+ * time at which the content was stored and a hash of the content). Both files
+ * are written to temporary files first, then atomically renamed (when the file
+ * system supports it), so that several processes can share a directory.</p>
+ *
+ * <p>Content whose metadata does not match (different URI, different hash of
+ * the content) is ignored; so is content older than the maximum age, if
+ * any.</p>
+ */
+@ThreadSafe
+public final class FileSchemaStore
+    implements SchemaStore
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaCoreMessageBundle.class);
+
+    private static final String URI = "uri";
+    private static final String STORED_AT = "storedAt";
+    private static final String SHA256 = "sha256";
+
+    private static final String DATA_EXTENSION = ".data";
+    private static final String META_EXTENSION = ".meta";
+
+    private final Path directory;
+    private final long maxAge;
+
+    /**
+     * Constructor; stored content never expires
+     *
+     * @param directory the directory (created when needed)
+     * @throws NullPointerException directory is null
+     */
+    public FileSchemaStore(final Path directory)
+    {
+        this(directory, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param directory the directory (created when needed)
+     * @param maxAge the maximum age of stored content
+     * @param unit the unit of the maximum age
+     * @throws NullPointerException directory or unit is null
+     * @throws IllegalArgumentException maximum age is negative
+     */
+    public FileSchemaStore(final Path directory, final long maxAge,
+        final TimeUnit unit)
+    {
+        this.directory = BUNDLE.checkNotNull(directory,
+            "schemaStore.nullDirectory");
+        BUNDLE.checkArgument(maxAge >= 0L, "schemaStore.invalidMaxAge");
+        this.maxAge = unit.toMillis(maxAge);
+    }
+
+    @Nullable
+    @Override
+    public byte[] load(final URI uri)
+        throws IOException
+    {
+        final String name = fileName(uri);
+        final Path metaFile = directory.resolve(name + META_EXTENSION);
+        final Path dataFile = directory.resolve(name + DATA_EXTENSION);
+
+        if (!Files.exists(metaFile))
+            return null;
+
+        final JsonNode meta = JacksonUtils.getReader()
+            .readTree(Files.readAllBytes(metaFile));
+
+        if (!uri.toString().equals(meta.path(URI).textValue()))
+            return null;
+
+        final long age = System.currentTimeMillis()
+            - meta.path(STORED_AT).longValue();
+        if (age > maxAge)
+            return null;
+
+        if (!Files.exists(dataFile))
+            return null;
+
+        final byte[] content = Files.readAllBytes(dataFile);
+        return sha256(content).equals(meta.path(SHA256).textValue())
+            ? content : null;
+    }
+
+    @Override
+    public void store(final URI uri, final byte[] content)
+        throws IOException
+    {
+        final String name = fileName(uri);
+
+        final ObjectNode meta = JacksonUtils.nodeFactory().objectNode();
+        meta.put(URI, uri.toString());
+        meta.put(STORED_AT, System.currentTimeMillis());
+        meta.put(SHA256, sha256(content));
+
+        Files.createDirectories(directory);
+        /*
+         * Content first: a reader seeing the new metadata along with the old
+         * content will see a hash mismatch, and ignore it
+         */
+        write(name + DATA_EXTENSION, content);
+        write(name + META_EXTENSION, meta.toString()
+            .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void remove(final URI uri)
+        throws IOException
+    {
+        final String name = fileName(uri);
+        Files.deleteIfExists(directory.resolve(name + META_EXTENSION));
+        Files.deleteIfExists(directory.resolve(name + DATA_EXTENSION));
+    }
+
+    @Override
+    public void clear()
+        throws IOException
+    {
+        if (!Files.isDirectory(directory))
+            return;
+
+        try (
+            final DirectoryStream<Path> files
+                = Files.newDirectoryStream(directory, "*.{meta,data}");
+        ) {
+            for (final Path file: files)
+                Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "file schema store (" + directory + ')';
+    }
+
+    private void write(final String name, final byte[] content)
+        throws IOException
+    {
+        final Path tmp = Files.createTempFile(directory, name, ".tmp");
+        try {
+            Files.write(tmp, content);
+            try {
+                Files.move(tmp, directory.resolve(name),
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ignored) {
+                Files.move(tmp, directory.resolve(name),
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static String fileName(final URI uri)
+    {
+        return Hashing.sha256().hashString(uri.toString(),
+            StandardCharsets.UTF_8).toString();
+    }
+
+    private static String sha256(final byte[] content)
+    {
+        return Hashing.sha256().hashBytes(content).toString();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load.store;
+
+import com.github.fge.jsonschema.core.load.URIManager;
+import com.github.fge.jsonschema.core.load.configuration.LoadingConfigurationBuilder;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Second level storage of fetched schemas
+ *
+ * <p>When a store is configured (see {@link
+ * LoadingConfigurationBuilder#setSchemaStore(SchemaStore)}), the {@link
+ * URIManager} looks up the content of a URI in it before fetching it; and
+ * content which has been fetched, and is valid JSON, is stored in it.</p>
+ *
+ * <p>Stores are accessed by several threads, and possibly several processes;
+ * implementations must account for this. Failures to store content are
+ * ignored, and failures to load content are treated as if the content were
+ * not stored.</p>
+ *
+ * @see FileSchemaStore
+ */
+public interface SchemaStore
+{
+    /**
+     * Load the stored content for a URI
+     *
+     * @param uri the URI
+     * @return the content, or {@code null} if no valid content is stored
+     * @throws IOException failed to read the content
+     */
+    @Nullable
+    byte[] load(final URI uri)
+        throws IOException;
+
+    /**
+     * Store the content for a URI
+     *
+     * @param uri the URI
+     * @param content the content
+     * @throws IOException failed to store the content
+     */
+    void store(final URI uri, final byte[] content)
+        throws IOException;
+
+    /**
+     * Remove the stored content for a URI, if any
+     *
+     * @param uri the URI
+     * @throws IOException failed to remove the content
+     */
+    void remove(final URI uri)
+        throws IOException;
+
+    /**
+     * Remove all stored content
+     *
+     * @throws IOException failed to remove the content
+     */
+    void clear()
+        throws IOException;
+}
@@ -374,6 +374,27 @@ public final class ProcessingMessage
         return this;
     }
 
+    /**
+     * Return a copy of this message
+     *
+     * <p>The copy has the same fields, log level, formatter arguments and
+     * exception provider as this message; modifying it does not modify this
+     * message.</p>
+     *
+     * @return a new message
+     */
+    public ProcessingMessage copy()
+    {
+        final ProcessingMessage ret = new ProcessingMessage();
+        ret.map.clear();
+        for (final Map.Entry<String, JsonNode> entry: map.entrySet())
+            ret.map.put(entry.getKey(), entry.getValue().deepCopy());
+        ret.args.addAll(args);
+        ret.exceptionProvider = exceptionProvider;
+        ret.level = level;
+        return ret;
+    }
+
     @Override
     public JsonNode asJson()
     {
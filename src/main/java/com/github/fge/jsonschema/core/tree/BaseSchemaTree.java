@@ -144,6 +144,58 @@ public abstract class BaseSchemaTree
         currentRef = nextRef(startingRef, newPointer, baseNode);
     }
 
+    /**
+     * Constructor for another pointer into an existing tree, when the node
+     * and resolution context at this pointer are already known
+     *
+     * @param other the existing tree
+     * @param newPointer the pointer
+     * @param node the node at this pointer
+     * @param context the resolution context at this pointer
+     */
+    protected BaseSchemaTree(final BaseSchemaTree other,
+        final JsonPointer newPointer, final JsonNode node,
+        final JsonRef context)
+    {
+        key = other.key;
+
+        dollarSchema = other.dollarSchema;
+        baseNode = other.baseNode;
+
+        pointer = newPointer;
+        this.node = node;
+
+        startingRef = other.startingRef;
+        currentRef = context;
+    }
+
+    /**
+     * Constructor for a subtree of an existing tree
+     *
+     * <p>Only the tokens of the relative pointer are evaluated, starting from
+     * the node and resolution context of the existing tree; navigating down a
+     * schema is therefore linear in the depth of the schema.</p>
+     *
+     * @param parent the existing tree
+     * @param newPointer the pointer of the existing tree, with the relative
+     * pointer appended
+     * @param relative the relative pointer
+     */
+    protected BaseSchemaTree(final BaseSchemaTree parent,
+        final JsonPointer newPointer, final JsonPointer relative)
+    {
+        key = parent.key;
+
+        dollarSchema = parent.dollarSchema;
+        baseNode = parent.baseNode;
+
+        pointer = newPointer;
+        node = relative.path(parent.node);
+
+        startingRef = parent.startingRef;
+        currentRef = nextRef(parent.currentRef, relative, parent.node);
+    }
+
     @Override
     @Deprecated
     public final long getId()
@@ -290,7 +342,7 @@ public abstract class BaseSchemaTree
      * @param startingNode the starting node
      * @return the calculated reference
      */
-    private static JsonRef nextRef(final JsonRef startingRef,
+    static JsonRef nextRef(final JsonRef startingRef,
         final JsonPointer ptr, final JsonNode startingNode)
     {
         JsonRef ret = startingRef;
@@ -37,12 +37,19 @@ import javax.annotation.concurrent.Immutable;
  *
  * <p>That is, {@code x://y/z#/foo/bar} resolves within the schema at URI
  * {@code x://y/z#}, but {@code x://y/t#} does not.</p>
+ *
+ * <p>All trees derived from a same tree share an index of nodes and
+ * resolution contexts by pointer, which is filled as pointers are visited:
+ * setting the pointer of a tree, or looking up the target of a reference,
+ * is a map lookup for pointers which have already been visited.</p>
  */
 @Immutable
 @ParametersAreNonnullByDefault
 public final class CanonicalSchemaTree
     extends BaseSchemaTree
 {
+    private final PointerIndex index;
+
     /**
      * Main constructor
      *
@@ -52,6 +59,7 @@ public final class CanonicalSchemaTree
     public CanonicalSchemaTree(final SchemaKey key, final JsonNode baseNode)
     {
         super(key, baseNode, JsonPointer.empty());
+        index = new PointerIndex(baseNode, getContext());
     }
 
     /**
@@ -74,22 +82,30 @@ public final class CanonicalSchemaTree
     }
 
     private CanonicalSchemaTree(final CanonicalSchemaTree other,
-        final JsonPointer newPointer)
+        final JsonPointer newPointer, final PointerIndex.Entry entry)
+    {
+        super(other, newPointer, entry.node, entry.context);
+        index = other.index;
+    }
+
+    private CanonicalSchemaTree(final CanonicalSchemaTree parent,
+        final JsonPointer newPointer, final JsonPointer relative)
     {
-        super(other, newPointer);
+        super(parent, newPointer, relative);
+        index = parent.index;
     }
 
     @Override
     public SchemaTree append(final JsonPointer pointer)
     {
         final JsonPointer newPointer = this.pointer.append(pointer);
-        return new CanonicalSchemaTree(this, newPointer);
+        return new CanonicalSchemaTree(this, newPointer, pointer);
     }
 
     @Override
     public SchemaTree setPointer(final JsonPointer pointer)
     {
-        return new CanonicalSchemaTree(this, pointer);
+        return new CanonicalSchemaTree(this, pointer, index.get(pointer));
     }
 
     @Override
@@ -105,6 +121,6 @@ public final class CanonicalSchemaTree
         if (!ref.isLegal())
             return null;
         final JsonPointer ptr = ref.getPointer();
-        return ptr.path(baseNode).isMissingNode() ? null : ptr;
+        return index.get(ptr).node.isMissingNode() ? null : ptr;
     }
 }
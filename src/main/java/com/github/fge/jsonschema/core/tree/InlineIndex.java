@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.tree;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonschema.core.ref.JsonRef;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The contexts declared by {@code id} in a schema, as used by {@link
+ * InlineSchemaTree}
+ *
+ * <p>Computing an index requires walking the whole schema. An index is
+ * therefore only built when an inline tree first looks up a reference, and is
+ * shared by all trees derived from that tree. It is not shared between trees
+ * built separately: the base node may have been modified in between.</p>
+ */
+@Immutable
+final class InlineIndex
+{
+    /**
+     * The pointers of contexts whose URIs are absolute JSON References,
+     * indexed by locator
+     *
+     * <p>A reference contains another if and only if both have the same
+     * locator (see {@link JsonRef#contains(JsonRef)}): looking up a reference
+     * is therefore a single lookup in this map. If several contexts have the
+     * same locator, only one of them is kept.</p>
+     */
+    private final Map<URI, JsonPointer> locators;
+
+    /**
+     * The list of contexts whose URIs are not absolute JSON References, or
+     * outright illegal JSON References
+     */
+    private final Map<JsonRef, JsonPointer> otherRefs;
+
+    /**
+     * Build the index of a schema
+     *
+     * @param loadingRef the loading reference of the schema
+     * @param baseNode the schema
+     */
+    InlineIndex(final JsonRef loadingRef, final JsonNode baseNode)
+    {
+        final Map<JsonRef, JsonPointer> abs = Maps.newHashMap();
+        final Map<JsonRef, JsonPointer> other = Maps.newHashMap();
+
+        walk(loadingRef, baseNode, JsonPointer.empty(), abs, other);
+        otherRefs = ImmutableMap.copyOf(other);
+
+        final Map<URI, JsonPointer> map = Maps.newHashMap();
+        URI locator;
+        for (final Map.Entry<JsonRef, JsonPointer> entry: abs.entrySet()) {
+            locator = entry.getKey().getLocator();
+            if (!map.containsKey(locator))
+                map.put(locator, entry.getValue());
+        }
+        locators = ImmutableMap.copyOf(map);
+    }
+
+    /**
+     * Return the pointer of a context which is not an absolute JSON Reference
+     *
+     * @param ref the context
+     * @return the pointer, or {@code null} if not found
+     */
+    @Nullable
+    JsonPointer otherRef(final JsonRef ref)
+    {
+        return otherRefs.get(ref);
+    }
+
+    /**
+     * Return the pointer of the absolute context with a given locator
+     *
+     * @param locator the locator
+     * @return the pointer, or {@code null} if not found
+     */
+    @Nullable
+    JsonPointer locator(final URI locator)
+    {
+        return locators.get(locator);
+    }
+
+    /**
+     * Walk a JSON document to collect URI contexts
+     *
+     * <p>Unlike what happens with a canonical schema tree, we <i>must</i> walk
+     * the whole tree in advance here. This is necessary for {@link
+     * InlineSchemaTree#containsRef(JsonRef)} and {@link
+     * InlineSchemaTree#matchingPointer(JsonRef)} to work.</p>
+     *
+     * <p>This method is called recursively. Its first invocation is from the
+     * constructor, with the loading reference as a reference, the base node as
+     * a JSON document and an empty pointer as the document pointer.</p>
+     *
+     * @param baseRef the current context
+     * @param node the current document
+     * @param ptr the current pointer into the base document
+     * @param absMap map for absolute JSON References
+     * @param otherMap map for non absolute and/or illegal JSON References
+     *
+     * @see BaseSchemaTree#idFromNode(JsonNode)
+     */
+    private static void walk(final JsonRef baseRef, final JsonNode node,
+        final JsonPointer ptr, final Map<JsonRef, JsonPointer> absMap,
+        final Map<JsonRef, JsonPointer> otherMap)
+    {
+        /*
+         * FIXME: this means we won't go through schemas in keywords such as
+         * "anyOf" and friends. No idea whether this is a concern. It may be.
+         */
+        if (!node.isObject())
+            return;
+
+        final JsonRef ref = BaseSchemaTree.idFromNode(node);
+        final Map<JsonRef, JsonPointer> targetMap;
+
+        JsonRef nextRef = baseRef;
+
+        if (ref != null) {
+            nextRef = baseRef.resolve(ref);
+            targetMap = nextRef.isAbsolute() ? absMap : otherMap;
+            targetMap.put(nextRef, ptr);
+        }
+
+        final Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
+        Map.Entry<String, JsonNode> entry;
+
+        while (iterator.hasNext()) {
+            entry = iterator.next();
+            walk(nextRef, entry.getValue(), ptr.append(entry.getKey()), absMap,
+                otherMap);
+        }
+    }
+}
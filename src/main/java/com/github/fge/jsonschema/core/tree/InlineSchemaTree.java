@@ -20,17 +20,15 @@
 package com.github.fge.jsonschema.core.tree;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jsonschema.core.ref.JsonRef;
 import com.github.fge.jsonschema.core.tree.key.SchemaKey;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.annotation.concurrent.Immutable;
-import java.util.Map;
 
 /**
  * A {@link SchemaTree} using inline dereferencing
@@ -57,15 +55,14 @@ public final class InlineSchemaTree
     extends BaseSchemaTree
 {
     /**
-     * The list of contexts whose URIs are absolute JSON References
-     */
-    private final Map<JsonRef, JsonPointer> absRefs;
-
-    /**
-     * The list of contexts whose URIs are not absolute JSON References, or
-     * outright illegal JSON References
+     * The index of contexts of this schema
+     *
+     * <p>It is only computed when a reference is first looked up, and shared
+     * by all trees derived from this one.</p>
+     *
+     * @see InlineIndex
      */
-    private final Map<JsonRef, JsonPointer> otherRefs;
+    private final Supplier<InlineIndex> index;
 
     /**
      * Main constructor
@@ -77,13 +74,15 @@ public final class InlineSchemaTree
     {
         super(key, baseNode, JsonPointer.empty());
 
-        final Map<JsonRef, JsonPointer> abs = Maps.newHashMap();
-        final Map<JsonRef, JsonPointer> other = Maps.newHashMap();
         final JsonRef loadingRef = key.getLoadingRef();
-
-        walk(loadingRef, baseNode, JsonPointer.empty(), abs, other);
-        absRefs = ImmutableMap.copyOf(abs);
-        otherRefs = ImmutableMap.copyOf(other);
+        index = Suppliers.memoize(new Supplier<InlineIndex>()
+        {
+            @Override
+            public InlineIndex get()
+            {
+                return new InlineIndex(loadingRef, baseNode);
+            }
+        });
     }
 
     /**
@@ -117,15 +116,21 @@ public final class InlineSchemaTree
         final JsonPointer newPointer)
     {
         super(other, newPointer);
-        absRefs = other.absRefs;
-        otherRefs = other.otherRefs;
+        index = other.index;
+    }
+
+    private InlineSchemaTree(final InlineSchemaTree parent,
+        final JsonPointer newPointer, final JsonPointer relative)
+    {
+        super(parent, newPointer, relative);
+        index = parent.index;
     }
 
     @Override
     public SchemaTree append(final JsonPointer pointer)
     {
         final JsonPointer newPointer = this.pointer.append(pointer);
-        return new InlineSchemaTree(this, newPointer);
+        return new InlineSchemaTree(this, newPointer, pointer);
     }
 
     @Override
@@ -154,11 +159,13 @@ public final class InlineSchemaTree
     @Nullable
     private JsonPointer getMatchingPointer(final JsonRef ref)
     {
-        if (otherRefs.containsKey(ref))
-            return otherRefs.get(ref);
+        final InlineIndex idx = index.get();
+        final JsonPointer ptr = idx.otherRef(ref);
+        if (ptr != null)
+            return ptr;
         if (!ref.isLegal())
             return null;
-        return  refMatchingPointer(ref);
+        return  refMatchingPointer(idx, ref);
     }
 
     /**
@@ -169,11 +176,13 @@ public final class InlineSchemaTree
      * intricacies, the test against the loading reference is done only as a
      * last resort.</p>
      *
+     * @param idx the index of contexts
      * @param ref the target reference
      * @return the matching pointer, or {@code null} if not found
      */
     @Nullable
-    private JsonPointer refMatchingPointer(final JsonRef ref)
+    private JsonPointer refMatchingPointer(final InlineIndex idx,
+        final JsonRef ref)
     {
         final JsonPointer refPtr = ref.getPointer();
 
@@ -182,9 +191,9 @@ public final class InlineSchemaTree
          * as a URI scope over what the loading URI is...
          */
 
-        for (final Map.Entry<JsonRef, JsonPointer> entry: absRefs.entrySet())
-            if (entry.getKey().contains(ref))
-                return entry.getValue().append(refPtr);
+        final JsonPointer ptr = idx.locator(ref.getLocator());
+        if (ptr != null)
+            return ptr.append(refPtr);
 
         /*
          * ... Which means this test must be done last... (since refPtr is
@@ -192,53 +201,4 @@ public final class InlineSchemaTree
          */
         return key.getLoadingRef().contains(ref) ? refPtr : null;
     }
-
-    /**
-     * Walk a JSON document to collect URI contexts
-     *
-     * <p>Unlike what happens with a canonical schema tree, we <i>must</i> walk
-     * the whole tree in advance here. This is necessary for {@link
-     * #containsRef(JsonRef)} and {@link #matchingPointer(JsonRef)} to work.</p>
-     *
-     * <p>This method is called recursively. Its furst invocation is from the
-     * constructor, with {@link SchemaKey#getLoadingRef()} as a reference,
-     * {@link #baseNode} as a JSON document and an empty pointer as the document
-     * pointer.</p>
-     *
-     * @param baseRef the current context
-     * @param node the current document
-     * @param ptr the current pointer into the base document
-     * @param absMap map for absolute JSON References
-     * @param otherMap map for non absolute and/or illegal JSON References
-     *
-     * @see #idFromNode(JsonNode)
-     */
-    private static void walk(final JsonRef baseRef, final JsonNode node,
-        final JsonPointer ptr, final Map<JsonRef, JsonPointer> absMap,
-        final Map<JsonRef, JsonPointer> otherMap)
-    {
-        /*
-         * FIXME: this means we won't go through schemas in keywords such as
-         * "anyOf" and friends. No idea whether this is a concern. It may be.
-         */
-        if (!node.isObject())
-            return;
-
-        final JsonRef ref = idFromNode(node);
-        final Map<JsonRef, JsonPointer> targetMap;
-
-        JsonRef nextRef = baseRef;
-
-        if (ref != null) {
-            nextRef = baseRef.resolve(ref);
-            targetMap = nextRef.isAbsolute() ? absMap : otherMap;
-            targetMap.put(nextRef, ptr);
-        }
-
-        final Map<String, JsonNode> tmp = JacksonUtils.asMap(node);
-
-        for (final Map.Entry<String, JsonNode> entry: tmp.entrySet())
-            walk(nextRef, entry.getValue(), ptr.append(entry.getKey()), absMap,
-                otherMap);
-    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.tree;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonschema.core.ref.JsonRef;
+import com.google.common.collect.Maps;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the nodes and resolution contexts of a schema, by pointer
+ *
+ * <p>An index is created along with a tree, and shared by all trees derived
+ * from it (that is, with the same base node). It is filled lazily: the node
+ * and context at a given pointer are computed the first time they are asked
+ * for, and are then a single map lookup.</p>
+ *
+ * <p>Pointers which are not in the schema are not indexed: they can be the
+ * pointers of dangling references, which come from the outside, and the index
+ * is therefore bounded by the size of the schema.</p>
+ */
+@ThreadSafe
+final class PointerIndex
+{
+    private final JsonNode baseNode;
+    private final JsonRef startingRef;
+    private final ConcurrentMap<JsonPointer, Entry> entries
+        = Maps.newConcurrentMap();
+
+    PointerIndex(final JsonNode baseNode, final JsonRef startingRef)
+    {
+        this.baseNode = baseNode;
+        this.startingRef = startingRef;
+    }
+
+    Entry get(final JsonPointer pointer)
+    {
+        Entry entry = entries.get(pointer);
+        if (entry != null)
+            return entry;
+        entry = new Entry(pointer.path(baseNode),
+            BaseSchemaTree.nextRef(startingRef, pointer, baseNode));
+        if (entry.node.isMissingNode())
+            return entry;
+        final Entry previous = entries.putIfAbsent(pointer, entry);
+        return previous == null ? entry : previous;
+    }
+
+    /*
+     * Number of indexed pointers
+     */
+    int size()
+    {
+        return entries.size();
+    }
+
+    static final class Entry
+    {
+        final JsonNode node;
+        final JsonRef context;
+
+        private Entry(final JsonNode node, final JsonRef context)
+        {
+            this.node = node;
+            this.context = context;
+        }
+    }
+}
@@ -19,9 +19,14 @@
 
 package com.github.fge.jsonschema.core.util;
 
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
-import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 
 import javax.annotation.concurrent.ThreadSafe;
 import javax.script.Invocable;
@@ -30,6 +35,7 @@ import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * <p>ECMA 262 validation helper. A script engine is used instead of {@link
@@ -49,52 +55,102 @@ import java.util.regex.Pattern;
  * the full story. And if you don't yet have Jeffrey Friedl's "Mastering regular
  * expressions", just <a href="http://regex.info">buy it</a> :p</p>
  *
- * <p>As script engine is used either Nashorn or Rhino as its fallback.
- * Nashorn is only available on Java 8 up to 14.</p>
+ * <p>By default, regexes are translated to {@link Pattern}s by a pure Java
+ * ECMA 262 parser (see {@link RegexECMA262Translator}), which is much faster
+ * than going through a script engine for each call.</p>
  *
- * <p>Rhino is the fallback as it is tremendously slower.</p>
+ * <p>A script engine can still be selected by setting the system property
+ * {@value #ENGINE_PROPERTY} to {@code nashorn} or {@code rhino}. Nashorn is
+ * only available on Java 8 up to 14; if it is requested but not available,
+ * Rhino is used instead.</p>
+ *
+ * <p>Compiled regexes (and the fact that a regex is invalid) are cached, so
+ * that a regex used over and over again is only compiled once. The size of
+ * this cache is 512 by default and can be set using the system property
+ * {@value #CACHE_SIZE_PROPERTY}; as for other caches in this package, zero
+ * disables it and -1 makes it unbounded. See {@link #getCacheStats()}.</p>
  */
 @ThreadSafe
 public final class RegexECMA262Helper
 {
-    private static final String REGEX_IS_VALID_FUNCTION_NAME = "regexIsValid";
+    /**
+     * System property used to select the regex engine
+     *
+     * <p>Recognized values are {@code java} (the default), {@code nashorn}
+     * and {@code rhino}.</p>
+     */
+    public static final String ENGINE_PROPERTY
+        = "com.github.fge.jsonschema.regex.engine";
+
+    /**
+     * System property used to set the size of the compiled regex cache
+     */
+    public static final String CACHE_SIZE_PROPERTY
+        = "com.github.fge.jsonschema.regex.cacheSize";
+
+    private static final int DEFAULT_CACHE_SIZE = 512;
+
+    private static final String REGEX_COMPILE_FUNCTION_NAME = "regexCompile";
 
-    private static final String REG_MATCH_FUNCTION_NAME = "regMatch";
+    private static final String REGEX_TEST_FUNCTION_NAME = "regexTest";
 
     /**
-     * JavaScript scriptlet defining functions for validating a regular
-     * expression and for matching an input against a regular expression.
+     * JavaScript scriptlet defining functions for compiling a regular
+     * expression (returning null if it is invalid) and for matching an input
+     * against a compiled regular expression.
      */
     private static final String jsAsString
-        = "function " + REGEX_IS_VALID_FUNCTION_NAME + "(re)"
+        = "function " + REGEX_COMPILE_FUNCTION_NAME + "(re)"
         + '{'
         + "    try {"
-        + "         new RegExp(re);"
-        + "         return true;"
+        + "         return new RegExp(re);"
         + "    } catch (e) {"
-        + "        return false;"
+        + "        return null;"
         + "    }"
         + '}'
         + ""
-        + "function " + REG_MATCH_FUNCTION_NAME + "(re, input)"
+        + "function " + REGEX_TEST_FUNCTION_NAME + "(re, input)"
         + '{'
-        + "    return new RegExp(re).test(input);"
+        + "    return re.test(input);"
         + '}';
 
-    private static final RegexScript REGEX_SCRIPT = determineRegexScript();
+    private static final CachingRegexScript<?> REGEX_SCRIPT
+        = new CachingRegexScript<>(determineRegexScript(), determineCacheSize());
 
     private RegexECMA262Helper()
     {
     }
 
-    private static RegexScript determineRegexScript()
+    private static RegexScript<?> determineRegexScript()
     {
-        try {
-            return new NashornScript();
-        } catch(final ScriptException e) {
-            // either Nashorn is not available or the JavaScript can't be parsed
+        final String engine = System.getProperty(ENGINE_PROPERTY, "java");
+        switch (engine) {
+            case "java":
+                return new JavaRegexScript();
+            case "nashorn":
+                try {
+                    return new NashornScript();
+                } catch(final ScriptException e) {
+                    // either Nashorn is not available or the JavaScript can't
+                    // be parsed
+                }
+                return new RhinoScript();
+            case "rhino":
+                return new RhinoScript();
+            default:
+                throw new IllegalArgumentException("unknown regex engine \""
+                    + engine + "\" (valid values are java, nashorn, rhino)");
         }
-        return new RhinoScript();
+    }
+
+    private static int determineCacheSize()
+    {
+        final int cacheSize = Integer.getInteger(CACHE_SIZE_PROPERTY,
+            DEFAULT_CACHE_SIZE);
+        if (cacheSize < -1)
+            throw new IllegalArgumentException("invalid regex cache size "
+                + cacheSize + " (must be -1 or greater)");
+        return cacheSize;
     }
 
     /**
@@ -121,20 +177,124 @@ public final class RegexECMA262Helper
      * @param regex the regex to use
      * @param input the input to match against (and again, see description)
      * @return true if the regex matches the input
+     * @throws IllegalArgumentException regex is not valid
      */
     public static boolean regMatch(final String regex, final String input)
     {
         return REGEX_SCRIPT.regMatch(regex, input);
     }
 
-    private interface RegexScript
+    /**
+     * Return statistics of the compiled regex cache
+     *
+     * @return the cache statistics
+     */
+    public static CacheStats getCacheStats()
     {
-        boolean regexIsValid(String regex);
+        return REGEX_SCRIPT.cache.stats();
+    }
 
-        boolean regMatch(String regex, String input);
+    /**
+     * Release resources held by the regex engine for the current thread
+     *
+     * <p>When Rhino is used, each thread using this class keeps a Rhino
+     * context; threads which are done with regex validation (for instance,
+     * threads of a pool which is being shut down) may call this method to
+     * release it. This is a no-op for other engines, and calling it is
+     * never required for correctness.</p>
+     */
+    public static void releaseThreadResources()
+    {
+        REGEX_SCRIPT.script.releaseThreadResources();
     }
 
-    private static class NashornScript implements RegexScript
+    /**
+     * A regex engine
+     *
+     * @param <T> the type of compiled regexes
+     */
+    private interface RegexScript<T>
+    {
+        /**
+         * Compile a regex
+         *
+         * @param regex the regex
+         * @return the compiled regex, or absent if the regex is invalid
+         */
+        Optional<T> compile(String regex);
+
+        boolean matches(T compiled, String input);
+
+        /**
+         * Release resources held by this engine for the current thread
+         */
+        void releaseThreadResources();
+    }
+
+    private static final class CachingRegexScript<T>
+    {
+        private final RegexScript<T> script;
+
+        private final LoadingCache<String, Optional<T>> cache;
+
+        private CachingRegexScript(final RegexScript<T> script,
+            final int cacheSize)
+        {
+            this.script = script;
+            final CacheBuilder<Object, Object> builder
+                = CacheBuilder.newBuilder().recordStats();
+            if (cacheSize != -1)
+                builder.maximumSize(cacheSize);
+            cache = builder.build(new CacheLoader<String, Optional<T>>()
+            {
+                @Override
+                public Optional<T> load(final String key)
+                {
+                    return script.compile(key);
+                }
+            });
+        }
+
+        private boolean regexIsValid(final String regex)
+        {
+            return cache.getUnchecked(regex).isPresent();
+        }
+
+        private boolean regMatch(final String regex, final String input)
+        {
+            final Optional<T> compiled = cache.getUnchecked(regex);
+            if (!compiled.isPresent())
+                throw new IllegalArgumentException("invalid ECMA 262 regex \""
+                    + regex + '"');
+            return script.matches(compiled.get(), input);
+        }
+    }
+
+    private static class JavaRegexScript implements RegexScript<Pattern>
+    {
+        @Override
+        public Optional<Pattern> compile(final String regex)
+        {
+            try {
+                return Optional.of(RegexECMA262Translator.compile(regex));
+            } catch (PatternSyntaxException ignored) {
+                return Optional.absent();
+            }
+        }
+
+        @Override
+        public boolean matches(final Pattern compiled, final String input)
+        {
+            return compiled.matcher(input).find();
+        }
+
+        @Override
+        public void releaseThreadResources()
+        {
+        }
+    }
+
+    private static class NashornScript implements RegexScript<Object>
     {
         /**
          * Script engine
@@ -152,12 +312,11 @@ public final class RegexECMA262Helper
             this.scriptEngine = (Invocable) engine;
         }
 
-        private boolean invokeScriptEngine(final String function,
-                                           final Object... values)
+        private Object invokeScriptEngine(final String function,
+                                          final Object... values)
         {
             try {
-                return (Boolean) scriptEngine.invokeFunction(function,
-                        values);
+                return scriptEngine.invokeFunction(function, values);
             } catch(final ScriptException e) {
                 throw new IllegalStateException(
                         "Unexpected error on invoking Script.", e);
@@ -168,40 +327,60 @@ public final class RegexECMA262Helper
         }
 
         @Override
-        public boolean regexIsValid(final String regex)
+        public Optional<Object> compile(final String regex)
         {
-            return invokeScriptEngine(REGEX_IS_VALID_FUNCTION_NAME, regex);
+            return Optional.fromNullable(
+                invokeScriptEngine(REGEX_COMPILE_FUNCTION_NAME, regex));
         }
 
         @Override
-        public boolean regMatch(final String regex, final String input)
+        public boolean matches(final Object compiled, final String input)
+        {
+            return (Boolean) invokeScriptEngine(REGEX_TEST_FUNCTION_NAME,
+                compiled, input);
+        }
+
+        @Override
+        public void releaseThreadResources()
         {
-            return invokeScriptEngine(REG_MATCH_FUNCTION_NAME, regex, input);
         }
     }
 
-    private static class RhinoScript implements RegexScript
+    /**
+     * Rhino engine
+     *
+     * <p>The scope is built once and sealed, which makes it safe to share
+     * between threads. Entering and exiting a {@link Context} is costly, so
+     * each thread enters one on first use and keeps it until {@link
+     * #releaseThreadResources()} is called from that thread.</p>
+     */
+    private static class RhinoScript implements RegexScript<Object>
     {
         /**
-         * Script scope
+         * Script scope (sealed)
          */
-        private final Scriptable scope;
+        private final ScriptableObject scope;
 
         /**
-         * Reference to Javascript function for regex validation
+         * Reference to Javascript function for regex compilation
          */
-        private final Function regexIsValid;
+        private final Function regexCompile;
 
         /**
          * Reference to Javascript function for regex matching
          */
-        private final Function regMatch;
+        private final Function regexTest;
+
+        /**
+         * Contexts entered by this engine, per thread
+         */
+        private final ThreadLocal<Context> contexts = new ThreadLocal<>();
 
         private RhinoScript()
         {
             final Context ctx = Context.enter();
             try {
-                this.scope = ctx.initStandardObjects(null, false);
+                this.scope = ctx.initStandardObjects(null, true);
                 try {
                     ctx.evaluateString(scope, jsAsString, "re", 1, null);
                 } catch(final UnsupportedOperationException e) {
@@ -209,36 +388,62 @@ public final class RegexECMA262Helper
                     ctx.setOptimizationLevel(-1);
                     ctx.evaluateString(scope, jsAsString, "re", 1, null);
                 }
-                this.regexIsValid = (Function)
-                        scope.get(REGEX_IS_VALID_FUNCTION_NAME, scope);
-                this.regMatch = (Function)
-                        scope.get(REG_MATCH_FUNCTION_NAME, scope);
+                this.regexCompile = (Function)
+                        scope.get(REGEX_COMPILE_FUNCTION_NAME, scope);
+                this.regexTest = (Function)
+                        scope.get(REGEX_TEST_FUNCTION_NAME, scope);
+                scope.sealObject();
             } finally {
                 Context.exit();
             }
         }
 
-        private boolean invokeScriptEngine(final Function function,
-                                           final Object... values)
+        private Context threadContext()
         {
-            final Context context = Context.enter();
-            try {
-                return (Boolean) function.call(context, scope, scope, values);
-            } finally {
-                Context.exit();
-            }
+            final Context context = contexts.get();
+            if (context != null)
+                return context;
+            final Context entered = Context.enter();
+            contexts.set(entered);
+            return entered;
+        }
+
+        private Object invokeScriptEngine(final Function function,
+                                          final Object... values)
+        {
+            return function.call(threadContext(), scope, scope, values);
+        }
+
+        @Override
+        public Optional<Object> compile(final String regex)
+        {
+            return Optional.fromNullable(
+                invokeScriptEngine(regexCompile, regex));
         }
 
         @Override
-        public boolean regexIsValid(final String regex)
+        public boolean matches(final Object compiled, final String input)
         {
-            return invokeScriptEngine(regexIsValid, regex);
+            return (Boolean) invokeScriptEngine(regexTest, compiled, input);
         }
 
         @Override
-        public boolean regMatch(final String regex, final String input)
+        public void releaseThreadResources()
+        {
+            if (contexts.get() == null)
+                return;
+            contexts.remove();
+            Context.exit();
+        }
+
+        boolean regexIsValid(final String regex)
+        {
+            return compile(regex).isPresent();
+        }
+
+        boolean regMatch(final String regex, final String input)
         {
-            return invokeScriptEngine(regMatch, regex, input);
+            return matches(compile(regex).get(), input);
         }
     }
 }
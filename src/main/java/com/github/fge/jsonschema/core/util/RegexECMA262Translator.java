@@ -0,0 +1,699 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.util;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Translator of ECMA 262 regular expressions to {@link Pattern}s
+ *
+ * <p>This is a recursive descent parser for the grammar of ECMA 262 (edition
+ * 5.1) regular expressions, including the web compatibility extensions that
+ * JavaScript engines implement (for instance, {@code a{} is a valid regex
+ * matching {@code a{}). It produces an equivalent {@link java.util.regex}
+ * pattern, or throws a {@link PatternSyntaxException} if the input is not a
+ * valid ECMA 262 regex.</p>
+ *
+ * <p>The translation makes ECMA 262 semantics explicit, so that Java specific
+ * syntax is never handed over to {@link Pattern} as is:</p>
+ *
+ * <ul>
+ *     <li>lookbehinds, named groups, atomic groups, inline flags and
+ *     possessive quantifiers are rejected;</li>
+ *     <li>{@code .} does not match line terminators, {@code $} only matches
+ *     at the end of input;</li>
+ *     <li>{@code \s} is the ECMA 262 set of white space and line terminators,
+ *     {@code \b} is defined in terms of the (ASCII only) {@code \w};</li>
+ *     <li>escapes which are not defined by ECMA 262 are identity escapes:
+ *     {@code \p} matches {@code p}, {@code \A} matches {@code A}, etc;</li>
+ *     <li>{@code []} never matches, {@code [^]} matches any character.</li>
+ * </ul>
+ *
+ * <p>There are differences which cannot be accounted for: Java matches code
+ * points where ECMA 262 matches UTF-16 code units, and a backreference to a
+ * group which has not participated in the match fails in Java where it
+ * matches the empty string in ECMA 262.</p>
+ *
+ * @see RegexECMA262Helper
+ */
+@NotThreadSafe
+final class RegexECMA262Translator
+{
+    private static final String DOT = "[^\\n\\r\\u2028\\u2029]";
+
+    private static final String DIGIT = "0-9";
+    private static final String WORD = "a-zA-Z0-9_";
+    private static final String SPACE = "\\t\\n\\u000B\\f\\r\\u0020\\u00A0"
+        + "\\u1680\\u180E\\u2000-\\u200A\\u2028\\u2029\\u202F\\u205F\\u3000"
+        + "\\uFEFF";
+
+    private static final String WORD_BOUNDARY
+        = "(?:(?<=[" + WORD + "])(?![" + WORD + "])"
+        + "|(?<![" + WORD + "])(?=[" + WORD + "]))";
+    private static final String NOT_WORD_BOUNDARY
+        = "(?:(?<=[" + WORD + "])(?=[" + WORD + "])"
+        + "|(?<![" + WORD + "])(?![" + WORD + "]))";
+
+    private static final String NEVER = "(?!)";
+    private static final String ANY = "[\\s\\S]";
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /*
+     * Returned by classAtom() for class escapes
+     */
+    private static final int ESCAPE = -1;
+    private static final int NEGATED_ESCAPE = -2;
+
+    private final String input;
+    private final int length;
+    private final int groupCount;
+    private final StringBuilder sb = new StringBuilder();
+
+    private int index = 0;
+
+    /**
+     * Compile an ECMA 262 regex into a {@link Pattern}
+     *
+     * @param regex the regex
+     * @return the pattern
+     * @throws PatternSyntaxException regex is not a valid ECMA 262 regex
+     */
+    static Pattern compile(final String regex)
+    {
+        return Pattern.compile(translate(regex));
+    }
+
+    /**
+     * Translate an ECMA 262 regex into an equivalent {@link Pattern} regex
+     *
+     * @param regex the regex
+     * @return the equivalent regex for {@link Pattern}
+     * @throws PatternSyntaxException regex is not a valid ECMA 262 regex
+     */
+    static String translate(final String regex)
+    {
+        final RegexECMA262Translator translator
+            = new RegexECMA262Translator(regex);
+        translator.disjunction();
+        if (translator.index != translator.length)
+            throw translator.error("unmatched closing parenthesis");
+        return translator.sb.toString();
+    }
+
+    private RegexECMA262Translator(final String input)
+    {
+        this.input = input;
+        length = input.length();
+        groupCount = countGroups(input);
+    }
+
+    private void disjunction()
+    {
+        alternative();
+        while (index < length && input.charAt(index) == '|') {
+            sb.append('|');
+            index++;
+            alternative();
+        }
+    }
+
+    private void alternative()
+    {
+        char c;
+        while (index < length) {
+            c = input.charAt(index);
+            if (c == '|' || c == ')')
+                return;
+            term();
+        }
+    }
+
+    private void term()
+    {
+        final char c = input.charAt(index);
+
+        /*
+         * Assertions first: they cannot be quantified
+         */
+        if (c == '^') {
+            sb.append('^');
+            index++;
+            noQuantifier();
+            return;
+        }
+
+        if (c == '$') {
+            sb.append("\\z");
+            index++;
+            noQuantifier();
+            return;
+        }
+
+        if (c == '\\' && index + 1 < length) {
+            final char next = input.charAt(index + 1);
+            if (next == 'b' || next == 'B') {
+                sb.append(next == 'b' ? WORD_BOUNDARY : NOT_WORD_BOUNDARY);
+                index += 2;
+                noQuantifier();
+                return;
+            }
+        }
+
+        if (input.startsWith("(?=", index) || input.startsWith("(?!", index)) {
+            sb.append(input, index, index + 3);
+            index += 3;
+            disjunction();
+            closeGroup();
+            noQuantifier();
+            return;
+        }
+
+        atom();
+        quantifier();
+    }
+
+    private void atom()
+    {
+        final char c = input.charAt(index);
+
+        switch (c) {
+            case '.':
+                sb.append(DOT);
+                index++;
+                break;
+            case '(':
+                if (input.startsWith("(?:", index)) {
+                    sb.append("(?:");
+                    index += 3;
+                } else if (input.startsWith("(?", index)) {
+                    throw error("invalid group");
+                } else {
+                    sb.append('(');
+                    index++;
+                }
+                disjunction();
+                closeGroup();
+                break;
+            case '[':
+                characterClass();
+                break;
+            case '\\':
+                atomEscape();
+                break;
+            case '*': case '+': case '?':
+                throw error("nothing to repeat");
+            case '{':
+                if (braceQuantifierEnd(index) != -1)
+                    throw error("nothing to repeat");
+                appendChar(c);
+                index++;
+                break;
+            default:
+                appendChar(c);
+                index++;
+        }
+    }
+
+    private void closeGroup()
+    {
+        if (index >= length)
+            throw error("unterminated group");
+        /*
+         * Alternatives only stop on '|' or ')', and disjunctions consume all
+         * '|': this is necessarily a closing parenthesis
+         */
+        sb.append(')');
+        index++;
+    }
+
+    private void quantifier()
+    {
+        if (index >= length)
+            return;
+
+        final char c = input.charAt(index);
+
+        if (c == '*' || c == '+' || c == '?') {
+            sb.append(c);
+            index++;
+        } else if (c == '{') {
+            final int end = braceQuantifierEnd(index);
+            if (end == -1)
+                return;
+            final int comma = input.indexOf(',', index);
+            final int min;
+            final int max;
+            if (comma == -1 || comma > end) {
+                min = max = parseNumber(index + 1, end);
+            } else {
+                min = parseNumber(index + 1, comma);
+                max = comma + 1 == end ? -1 : parseNumber(comma + 1, end);
+            }
+            if (max != -1 && min > max)
+                throw error("numbers out of order in quantifier");
+            sb.append('{').append(min).append(',');
+            if (max != -1)
+                sb.append(max);
+            sb.append('}');
+            index = end + 1;
+        } else {
+            return;
+        }
+
+        if (index < length && input.charAt(index) == '?') {
+            sb.append('?');
+            index++;
+        }
+
+        noQuantifier();
+    }
+
+    private void noQuantifier()
+    {
+        if (index >= length)
+            return;
+
+        final char c = input.charAt(index);
+
+        if (c == '*' || c == '+' || c == '?'
+            || c == '{' && braceQuantifierEnd(index) != -1)
+            throw error("nothing to repeat");
+    }
+
+    private void atomEscape()
+    {
+        if (index + 1 >= length)
+            throw error("trailing backslash");
+
+        final char c = input.charAt(index + 1);
+
+        if (c >= '1' && c <= '9') {
+            int end = index + 1;
+            while (end < length && isDigit(input.charAt(end)))
+                end++;
+            final int ref = parseNumber(index + 1, end);
+            if (ref <= groupCount) {
+                sb.append('\\').append(ref);
+                index = end;
+                return;
+            }
+        }
+
+        switch (c) {
+            case 'd':
+                sb.append('[').append(DIGIT).append(']');
+                index += 2;
+                break;
+            case 'D':
+                sb.append("[^").append(DIGIT).append(']');
+                index += 2;
+                break;
+            case 'w':
+                sb.append('[').append(WORD).append(']');
+                index += 2;
+                break;
+            case 'W':
+                sb.append("[^").append(WORD).append(']');
+                index += 2;
+                break;
+            case 's':
+                sb.append('[').append(SPACE).append(']');
+                index += 2;
+                break;
+            case 'S':
+                sb.append("[^").append(SPACE).append(']');
+                index += 2;
+                break;
+            default:
+                appendChar(characterEscape(false));
+        }
+    }
+
+    /*
+     * Parse a character escape, starting at the backslash, and return the
+     * character; set the index after the escape.
+     */
+    private char characterEscape(final boolean inClass)
+    {
+        final char c = input.charAt(index + 1);
+
+        switch (c) {
+            case 'f':
+                index += 2;
+                return '\f';
+            case 'n':
+                index += 2;
+                return '\n';
+            case 'r':
+                index += 2;
+                return '\r';
+            case 't':
+                index += 2;
+                return '\t';
+            case 'v':
+                index += 2;
+                return '\u000B';
+            case 'b':
+                /*
+                 * Only reached within a character class
+                 */
+                index += 2;
+                return '\b';
+            case 'c':
+                if (index + 2 < length
+                    && isControlLetter(input.charAt(index + 2), inClass)) {
+                    final char letter = input.charAt(index + 2);
+                    index += 3;
+                    return (char) (letter % 32);
+                }
+                /*
+                 * Web compatibility: the backslash is a literal and the "c"
+                 * will be parsed as a character on its own
+                 */
+                index++;
+                return '\\';
+            case 'x':
+                return hexEscape(2);
+            case 'u':
+                return hexEscape(4);
+            case '0': case '1': case '2': case '3':
+            case '4': case '5': case '6': case '7':
+                return octalEscape();
+            default:
+                /*
+                 * Identity escape, including \8 and \9
+                 */
+                index += 2;
+                return c;
+        }
+    }
+
+    private char hexEscape(final int nrDigits)
+    {
+        final int start = index + 2;
+        final int end = start + nrDigits;
+
+        if (end > length) {
+            index += 2;
+            return input.charAt(start - 1);
+        }
+
+        for (int i = start; i < end; i++)
+            if (Character.digit(input.charAt(i), 16) == -1) {
+                index += 2;
+                return input.charAt(start - 1);
+            }
+
+        index = end;
+        return (char) Integer.parseInt(input.substring(start, end), 16);
+    }
+
+    /*
+     * \0 not followed by a digit, or a legacy octal escape: up to three octal
+     * digits, as long as the value does not exceed 0377
+     */
+    private char octalEscape()
+    {
+        final int start = index + 1;
+        final int maxDigits = input.charAt(start) <= '3' ? 3 : 2;
+        int end = start;
+        int value = 0;
+        char c;
+
+        while (end < length && end - start < maxDigits) {
+            c = input.charAt(end);
+            if (c < '0' || c > '7')
+                break;
+            value = value * 8 + c - '0';
+            end++;
+        }
+
+        index = end;
+        return (char) value;
+    }
+
+    private void characterClass()
+    {
+        final int start = index;
+        index++;
+
+        final boolean negated = index < length && input.charAt(index) == '^';
+        if (negated)
+            index++;
+
+        final StringBuilder items = new StringBuilder();
+        boolean nested = false;
+        boolean empty = true;
+
+        int low;
+        int high;
+
+        while (true) {
+            if (index >= length)
+                throw new PatternSyntaxException("unterminated character class",
+                    input, start);
+            if (input.charAt(index) == ']')
+                break;
+
+            empty = false;
+            low = classAtom(items);
+            if (low == NEGATED_ESCAPE)
+                nested = true;
+
+            if (index + 1 >= length || input.charAt(index) != '-'
+                || input.charAt(index + 1) == ']')
+                continue;
+
+            /*
+             * A dash following a class escape is a literal dash, and what
+             * follows is a class atom on its own
+             */
+            if (low < 0) {
+                appendChar(items, '-');
+                index++;
+                if (classAtom(items) == NEGATED_ESCAPE)
+                    nested = true;
+                continue;
+            }
+
+            index++;
+            final int rangeStart = index;
+            items.append('-');
+            high = classAtom(items);
+            if (high < 0)
+                throw new PatternSyntaxException("invalid character class range",
+                    input, rangeStart);
+            if (low > high)
+                throw new PatternSyntaxException("character class range out of "
+                    + "order", input, rangeStart);
+        }
+
+        index++;
+
+        if (empty) {
+            sb.append(negated ? ANY : NEVER);
+            return;
+        }
+
+        if (!negated) {
+            sb.append('[').append(items).append(']');
+            return;
+        }
+
+        /*
+         * Java before 9 gets negation of unions wrong; use a lookahead instead
+         */
+        if (nested)
+            sb.append("(?:(?![").append(items).append("])").append(ANY)
+                .append(')');
+        else
+            sb.append("[^").append(items).append(']');
+    }
+
+    /*
+     * Parse one class atom, append its translation; return the character, or
+     * ESCAPE/NEGATED_ESCAPE for class escapes
+     */
+    private int classAtom(final StringBuilder items)
+    {
+        final char c = input.charAt(index);
+
+        if (c != '\\') {
+            appendChar(items, c);
+            index++;
+            return c;
+        }
+
+        if (index + 1 >= length)
+            throw error("trailing backslash");
+
+        final char next = input.charAt(index + 1);
+
+        switch (next) {
+            case 'd':
+                items.append(DIGIT);
+                index += 2;
+                return ESCAPE;
+            case 'D':
+                items.append("[^").append(DIGIT).append(']');
+                index += 2;
+                return NEGATED_ESCAPE;
+            case 'w':
+                items.append(WORD);
+                index += 2;
+                return ESCAPE;
+            case 'W':
+                items.append("[^").append(WORD).append(']');
+                index += 2;
+                return NEGATED_ESCAPE;
+            case 's':
+                items.append(SPACE);
+                index += 2;
+                return ESCAPE;
+            case 'S':
+                items.append("[^").append(SPACE).append(']');
+                index += 2;
+                return NEGATED_ESCAPE;
+            default:
+                final char ret = characterEscape(true);
+                appendChar(items, ret);
+                return ret;
+        }
+    }
+
+    /*
+     * Return the end index (position of the closing brace) of a brace
+     * quantifier starting at the given index, or -1 if there is no such
+     * quantifier
+     */
+    private int braceQuantifierEnd(final int start)
+    {
+        int i = start + 1;
+        int digits = 0;
+
+        while (i < length && isDigit(input.charAt(i))) {
+            i++;
+            digits++;
+        }
+
+        if (digits == 0 || i >= length)
+            return -1;
+
+        if (input.charAt(i) == ',') {
+            i++;
+            while (i < length && isDigit(input.charAt(i)))
+                i++;
+        }
+
+        return i < length && input.charAt(i) == '}' ? i : -1;
+    }
+
+    /*
+     * Parse a decimal number, clamping it to Integer.MAX_VALUE
+     */
+    private int parseNumber(final int start, final int end)
+    {
+        long value = 0L;
+
+        for (int i = start; i < end; i++) {
+            value = value * 10 + input.charAt(i) - '0';
+            if (value > Integer.MAX_VALUE)
+                return Integer.MAX_VALUE;
+        }
+
+        return (int) value;
+    }
+
+    private void appendChar(final char c)
+    {
+        appendChar(sb, c);
+    }
+
+    /*
+     * Letters are appended as is, all other characters as unicode escapes:
+     * this way, no character can be mistaken for a metacharacter (or, for
+     * digits, as part of a backreference)
+     */
+    private static void appendChar(final StringBuilder sb, final char c)
+    {
+        if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z') {
+            sb.append(c);
+            return;
+        }
+        sb.append("\\u");
+        for (int shift = 12; shift >= 0; shift -= 4)
+            sb.append(HEX_DIGITS[c >> shift & 0xF]);
+    }
+
+    private static boolean isDigit(final char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isControlLetter(final char c, final boolean inClass)
+    {
+        if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')
+            return true;
+        return inClass && (isDigit(c) || c == '_');
+    }
+
+    private PatternSyntaxException error(final String description)
+    {
+        return new PatternSyntaxException(description, input, index);
+    }
+
+    /*
+     * Count capturing groups; this is needed beforehand since backreferences
+     * may refer to groups which appear later in the regex.
+     */
+    private static int countGroups(final String input)
+    {
+        final int length = input.length();
+        boolean inClass = false;
+        int count = 0;
+        char c;
+
+        for (int i = 0; i < length; i++) {
+            c = input.charAt(i);
+            switch (c) {
+                case '\\':
+                    i++;
+                    break;
+                case '[':
+                    inClass = true;
+                    break;
+                case ']':
+                    inClass = false;
+                    break;
+                case '(':
+                    if (!inClass && (i + 1 >= length
+                        || input.charAt(i + 1) != '?'))
+                        count++;
+                    break;
+                default:
+            }
+        }
+
+        return count;
+    }
+}
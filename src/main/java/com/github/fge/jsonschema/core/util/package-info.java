@@ -22,7 +22,8 @@
  *
  * <p>{@link com.github.fge.jsonschema.core.util.RegexECMA262Helper} is in charge of
  * all regex validation: as the standard dictates ECMA 262 regexes, using {@link
- * java.util.regex} is out of the question. See this class' description for more
+ * java.util.regex} directly is out of the question; regexes are translated
+ * first, and compiled regexes are cached. See this class' description for more
  * details.</p>
  *
  * <p>There are other, various utility interfaces used elsewhere in the code.
@@ -27,12 +27,15 @@ import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.NodeType;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jsonschema.SampleNodeProvider;
+import com.github.fge.jsonschema.core.exceptions.InvalidSchemaException;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.keyword.syntax.dictionaries.DraftV4SyntaxCheckerDictionary;
 import com.github.fge.jsonschema.core.tree.key.SchemaKey;
 import com.github.fge.jsonschema.core.util.Dictionary;
 import com.github.fge.jsonschema.core.util.DictionaryBuilder;
 import com.github.fge.jsonschema.core.messages.JsonSchemaSyntaxMessageBundle;
 import com.github.fge.jsonschema.core.report.AbstractProcessingReport;
+import com.github.fge.jsonschema.core.report.ListProcessingReport;
 import com.github.fge.jsonschema.core.report.LogLevel;
 import com.github.fge.jsonschema.core.report.ProcessingMessage;
 import com.github.fge.jsonschema.core.report.ProcessingReport;
@@ -44,20 +47,31 @@ import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static com.github.fge.jsonschema.TestUtils.*;
 import static com.github.fge.jsonschema.matchers.ProcessingMessageAssert.*;
 import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
 
 public final class SyntaxProcessorTest
 {
@@ -207,6 +221,219 @@ public final class SyntaxProcessorTest
             any(MessageBundle.class), anyReport(), anySchema());
     }
 
+    @Test
+    public void checkersAreRunInKeywordOrder()
+        throws ProcessingException
+    {
+        final ObjectNode schema = FACTORY.objectNode();
+        schema.put(K2, "");
+        schema.put(K1, "");
+        final SchemaTree tree
+            = new CanonicalSchemaTree(SchemaKey.anonymousKey(), schema);
+        final ValueHolder<SchemaTree> holder = ValueHolder.hold("schema", tree);
+
+        processor.process(report, holder);
+
+        final InOrder inOrder = inOrder(checker, report);
+        inOrder.verify(checker).checkSyntax(
+            ArgumentMatchers.<JsonPointer>anyCollection(),
+            any(MessageBundle.class), anyReport(), anySchema());
+        inOrder.verify(report).log(same(LogLevel.ERROR),
+            any(ProcessingMessage.class));
+    }
+
+    @Test
+    public void deeplyNestedSchemasAreChecked()
+        throws ProcessingException
+    {
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE,
+            DraftV4SyntaxCheckerDictionary.get());
+        final SchemaTree tree = new CanonicalSchemaTree(
+            SchemaKey.anonymousKey(), nestedSchema(10000));
+        final ListProcessingReport report = new ListProcessingReport();
+
+        processor.process(report, ValueHolder.hold("schema", tree));
+
+        assertTrue(report.isSuccess());
+    }
+
+    @Test
+    public void subschemasDeeperThanMaximumDepthAreReported()
+        throws ProcessingException
+    {
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE,
+            DraftV4SyntaxCheckerDictionary.get(), 3);
+        final SchemaTree tree = new CanonicalSchemaTree(
+            SchemaKey.anonymousKey(), nestedSchema(5));
+        final ListProcessingReport report = new ListProcessingReport();
+
+        processor.process(report, ValueHolder.hold("schema", tree));
+
+        final List<ProcessingMessage> messages = Lists.newArrayList(report);
+        assertEquals(messages.size(), 1);
+        assertMessage(messages.get(0))
+            .hasMessage(BUNDLE.printf("core.maxDepthExceeded", 3))
+            .hasField("maxDepth", 3);
+        assertEquals(messages.get(0).asJson().path("schema").path("pointer")
+            .textValue(), "/not/not/not/not");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void maximumDepthMustBeStrictlyPositive()
+    {
+        new SyntaxProcessor(BUNDLE, DraftV4SyntaxCheckerDictionary.get(), 0);
+    }
+
+    @Test
+    public void parallelCheckingReportsTheSameMessagesAsSequentialChecking()
+        throws ProcessingException
+    {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final SyntaxProcessor sequential = new SyntaxProcessor(BUNDLE,
+                DraftV4SyntaxCheckerDictionary.get());
+            final SyntaxProcessor parallel = new SyntaxProcessor(BUNDLE,
+                DraftV4SyntaxCheckerDictionary.get(),
+                SyntaxProcessor.DEFAULT_MAX_DEPTH, pool, 2);
+            final SchemaTree tree = new CanonicalSchemaTree(
+                SchemaKey.anonymousKey(), invalidSchema(32));
+
+            final ListProcessingReport expected
+                = new ListProcessingReport(LogLevel.DEBUG, LogLevel.NONE);
+            final ListProcessingReport actual
+                = new ListProcessingReport(LogLevel.DEBUG, LogLevel.NONE);
+            sequential.process(expected, ValueHolder.hold("schema", tree));
+            parallel.process(actual, ValueHolder.hold("schema", tree));
+
+            assertFalse(actual.isSuccess());
+            assertEquals(actual.asJson(), expected.asJson());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expectedExceptions = InvalidSchemaException.class)
+    public void parallelCheckingHonorsTheExceptionThreshold()
+        throws ProcessingException
+    {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final SyntaxProcessor parallel = new SyntaxProcessor(BUNDLE,
+                DraftV4SyntaxCheckerDictionary.get(),
+                SyntaxProcessor.DEFAULT_MAX_DEPTH, pool, 2);
+            final SchemaTree tree = new CanonicalSchemaTree(
+                SchemaKey.anonymousKey(), invalidSchema(32));
+
+            parallel.process(
+                new ListProcessingReport(LogLevel.INFO, LogLevel.ERROR),
+                ValueHolder.hold("schema", tree));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelCheckingUsesTheConfiguredPoolFromAnotherPool()
+        throws InterruptedException, ExecutionException
+    {
+        final Set<ForkJoinPool> pools = Sets.newConcurrentHashSet();
+        final DictionaryBuilder<SyntaxChecker> builder
+            = DraftV4SyntaxCheckerDictionary.get().thaw();
+        builder.addEntry(K1, new SyntaxChecker()
+        {
+            @Override
+            public EnumSet<NodeType> getValidTypes()
+            {
+                return EnumSet.allOf(NodeType.class);
+            }
+
+            @Override
+            public void checkSyntax(final Collection<JsonPointer> pointers,
+                final MessageBundle bundle, final ProcessingReport report,
+                final SchemaTree tree)
+            {
+                pools.add(ForkJoinTask.getPool());
+            }
+        });
+
+        final ObjectNode properties = FACTORY.objectNode();
+        for (int i = 0; i < 8; i++)
+            properties.putObject("p" + i).put(K1, i);
+        final ObjectNode schema = FACTORY.objectNode();
+        schema.set("properties", properties);
+
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        final ForkJoinPool other = new ForkJoinPool(2);
+        try {
+            final SyntaxProcessor parallel = new SyntaxProcessor(BUNDLE,
+                builder.freeze(), SyntaxProcessor.DEFAULT_MAX_DEPTH, pool, 2);
+            final SchemaTree tree
+                = new CanonicalSchemaTree(SchemaKey.anonymousKey(), schema);
+
+            other.submit(new Callable<ProcessingReport>()
+            {
+                @Override
+                public ProcessingReport call()
+                    throws ProcessingException
+                {
+                    final ProcessingReport report = new ListProcessingReport();
+                    parallel.process(report, ValueHolder.hold("schema", tree));
+                    return report;
+                }
+            }).get();
+
+            assertEquals(pools, Collections.singleton(pool));
+        } finally {
+            pool.shutdown();
+            other.shutdown();
+        }
+    }
+
+    /*
+     * Build a schema with the given number of properties, some of which have
+     * syntax errors or unknown keywords
+     */
+    private static JsonNode invalidSchema(final int count)
+    {
+        final ObjectNode properties = FACTORY.objectNode();
+        ObjectNode property;
+        for (int i = 0; i < count; i++) {
+            property = FACTORY.objectNode();
+            switch (i % 4) {
+                case 0:
+                    property.put("type", i);
+                    break;
+                case 1:
+                    property.put("foo" + i, "");
+                    break;
+                case 2:
+                    property.set("items", nestedSchema(i).put("minItems", -1));
+                    break;
+                default:
+                    property.put("minLength", 1);
+            }
+            properties.set("p" + i, property);
+        }
+        final ObjectNode schema = FACTORY.objectNode();
+        schema.set("properties", properties);
+        return schema;
+    }
+
+    /*
+     * Build a schema with the given depth of nested "not" keywords
+     */
+    private static ObjectNode nestedSchema(final int depth)
+    {
+        ObjectNode node = FACTORY.objectNode();
+        ObjectNode parent;
+        for (int i = 0; i < depth; i++) {
+            parent = FACTORY.objectNode();
+            parent.set("not", node);
+            node = parent;
+        }
+        return node;
+    }
+
     private static class TestProcessingReport
         extends AbstractProcessingReport
     {
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.keyword.syntax;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.keyword.syntax.checkers.SyntaxChecker;
+import com.github.fge.jsonschema.core.keyword.syntax.dictionaries.DraftV4SyntaxCheckerDictionary;
+import com.github.fge.jsonschema.core.messages.JsonSchemaSyntaxMessageBundle;
+import com.github.fge.jsonschema.core.report.ListProcessingReport;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.tree.CanonicalSchemaTree;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import com.github.fge.jsonschema.core.tree.key.SchemaKey;
+import com.github.fge.jsonschema.core.util.Dictionary;
+import com.github.fge.jsonschema.core.util.ValueHolder;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.testng.Assert.*;
+
+public final class SyntaxResultCacheTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaSyntaxMessageBundle.class);
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+    private static final Dictionary<SyntaxChecker> DICT
+        = DraftV4SyntaxCheckerDictionary.get();
+
+    private SyntaxResultCache cache;
+
+    @BeforeMethod
+    public void initCache()
+    {
+        cache = new SyntaxResultCache();
+    }
+
+    @Test
+    public void cachedResultsAreTheSameAsUncachedResults()
+        throws ProcessingException
+    {
+        final SchemaTree tree = tree(schemaWithDuplicates(8));
+        final JsonNode expected
+            = check(new SyntaxProcessor(BUNDLE, DICT), tree);
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE, DICT,
+            SyntaxProcessor.DEFAULT_MAX_DEPTH, cache);
+
+        assertEquals(check(processor, tree), expected);
+        assertTrue(cache.getStats().hitCount() > 0L);
+        assertEquals(check(processor, tree), expected);
+    }
+
+    @Test
+    public void cachedResultsAreRebasedOntoOtherSubschemas()
+        throws ProcessingException
+    {
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE, DICT,
+            SyntaxProcessor.DEFAULT_MAX_DEPTH, cache);
+        final ObjectNode wrapper = FACTORY.objectNode();
+        wrapper.set("not", schemaWithDuplicates(2));
+
+        check(processor, tree(schemaWithDuplicates(2)));
+        final long misses = cache.getStats().missCount();
+        final JsonNode actual = check(processor, tree(wrapper));
+
+        assertEquals(cache.getStats().missCount(), misses + 1L);
+        assertEquals(actual,
+            check(new SyntaxProcessor(BUNDLE, DICT), tree(wrapper)));
+    }
+
+    @Test
+    public void cachedResultsHonorTheMaximumDepth()
+        throws ProcessingException
+    {
+        final SchemaTree tree = tree(nestedSchema(5));
+        check(new SyntaxProcessor(BUNDLE, DICT,
+            SyntaxProcessor.DEFAULT_MAX_DEPTH, cache), tree);
+
+        final JsonNode expected
+            = check(new SyntaxProcessor(BUNDLE, DICT, 3), tree);
+        final JsonNode actual
+            = check(new SyntaxProcessor(BUNDLE, DICT, 3, cache), tree);
+
+        assertEquals(actual, expected);
+        assertEquals(actual.size(), 1);
+    }
+
+    @Test
+    public void cacheCanBeUsedInParallelMode()
+        throws ProcessingException
+    {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final SchemaTree tree = tree(schemaWithDuplicates(16));
+            final JsonNode expected
+                = check(new SyntaxProcessor(BUNDLE, DICT), tree);
+            final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE,
+                DICT, SyntaxProcessor.DEFAULT_MAX_DEPTH, pool, 2, cache);
+
+            assertEquals(check(processor, tree), expected);
+            assertEquals(check(processor, tree), expected);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void disabledCacheDoesNotStoreResults()
+        throws ProcessingException
+    {
+        final SyntaxResultCache disabled = new SyntaxResultCache(0);
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE, DICT,
+            SyntaxProcessor.DEFAULT_MAX_DEPTH, disabled);
+        final SchemaTree tree = tree(schemaWithDuplicates(4));
+
+        check(processor, tree);
+        assertEquals(disabled.getStats().hitCount(), 0L);
+    }
+
+    @Test
+    public void equalSchemasHaveEqualKeysWhateverTheMemberOrder()
+    {
+        final ObjectNode node1 = FACTORY.objectNode();
+        node1.put("a", 1).set("b", FACTORY.arrayNode().add("x").add(2));
+        final ObjectNode node2 = FACTORY.objectNode();
+        node2.set("b", FACTORY.arrayNode().add("x").add(2));
+        node2.put("a", 1);
+        final ObjectNode node3 = FACTORY.objectNode();
+        node3.put("a", 1).set("b", FACTORY.arrayNode().add(2).add("x"));
+
+        final SyntaxResultCache.Key key1 = SyntaxResultCache.key(DICT, BUNDLE,
+            SyntaxResultCache.index(node1), node1);
+        final SyntaxResultCache.Key key2 = SyntaxResultCache.key(DICT, BUNDLE,
+            SyntaxResultCache.index(node2), node2);
+        final SyntaxResultCache.Key key3 = SyntaxResultCache.key(DICT, BUNDLE,
+            SyntaxResultCache.index(node3), node3);
+
+        assertEquals(key1.hashCode(), key2.hashCode());
+        assertEquals(key1, key2);
+        assertNotEquals(key1, key3);
+    }
+
+    @Test
+    public void indexCopiesSchemasOnce()
+    {
+        final ObjectNode root = nestedSchema(3);
+        final SyntaxResultCache.NodeIndex index
+            = SyntaxResultCache.index(root);
+        final JsonNode copy = index.copyOf(root);
+
+        assertNotSame(copy, root);
+        assertEquals(copy, root);
+        assertSame(index.copyOf(root.get("not")), copy.get("not"));
+
+        root.put("foo", "bar");
+        assertNotEquals(copy, root);
+    }
+
+    @Test
+    public void mutatedSchemasDoNotHitTheCache()
+        throws ProcessingException
+    {
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE, DICT,
+            SyntaxProcessor.DEFAULT_MAX_DEPTH, cache);
+        final ObjectNode schema = nestedSchema(2);
+
+        check(processor, tree(schema));
+        schema.put("minItems", -1);
+
+        assertEquals(check(processor, tree(schema)),
+            check(new SyntaxProcessor(BUNDLE, DICT), tree(schema)));
+    }
+
+    private static JsonNode check(final SyntaxProcessor processor,
+        final SchemaTree tree)
+        throws ProcessingException
+    {
+        final ListProcessingReport report
+            = new ListProcessingReport(LogLevel.DEBUG, LogLevel.NONE);
+        processor.process(report, ValueHolder.hold("schema", tree));
+        return report.asJson();
+    }
+
+    private static SchemaTree tree(final JsonNode node)
+    {
+        return new CanonicalSchemaTree(SchemaKey.anonymousKey(), node);
+    }
+
+    /*
+     * Build a schema with the given number of identical properties, all of
+     * which have syntax errors and unknown keywords
+     */
+    private static JsonNode schemaWithDuplicates(final int count)
+    {
+        final ObjectNode properties = FACTORY.objectNode();
+        ObjectNode property;
+        for (int i = 0; i < count; i++) {
+            property = FACTORY.objectNode();
+            property.put("foo", "");
+            property.set("items", nestedSchema(2).put("minItems", -1));
+            property.put("type", 1);
+            properties.set("p" + i, property);
+        }
+        final ObjectNode schema = FACTORY.objectNode();
+        schema.set("properties", properties);
+        return schema;
+    }
+
+    private static ObjectNode nestedSchema(final int depth)
+    {
+        ObjectNode node = FACTORY.objectNode();
+        ObjectNode parent;
+        for (int i = 0; i < depth; i++) {
+            parent = FACTORY.objectNode();
+            parent.set("not", node);
+            node = parent;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.keyword.syntax;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.NodeType;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.keyword.syntax.checkers.SyntaxChecker;
+import com.github.fge.jsonschema.core.keyword.syntax.dictionaries.DraftV4SyntaxCheckerDictionary;
+import com.github.fge.jsonschema.core.messages.JsonSchemaSyntaxMessageBundle;
+import com.github.fge.jsonschema.core.report.ListProcessingReport;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.core.tree.CanonicalSchemaTree;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import com.github.fge.jsonschema.core.tree.key.SchemaKey;
+import com.github.fge.jsonschema.core.util.Dictionary;
+import com.github.fge.jsonschema.core.util.DictionaryBuilder;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public final class SyntaxSnapshotTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaSyntaxMessageBundle.class);
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+    private static final Dictionary<SyntaxChecker> DICT
+        = DraftV4SyntaxCheckerDictionary.get();
+
+    private AtomicInteger typeChecks;
+    private SyntaxProcessor processor;
+
+    @BeforeMethod
+    public void initProcessor()
+    {
+        typeChecks = new AtomicInteger();
+        final DictionaryBuilder<SyntaxChecker> builder = DICT.thaw();
+        builder.addEntry("type",
+            new CountingChecker(DICT.entries().get("type"), typeChecks));
+        processor = new SyntaxProcessor(BUNDLE, builder.freeze());
+    }
+
+    @Test
+    public void checkReportsTheSameMessagesAsRawProcess()
+        throws ProcessingException
+    {
+        final SchemaTree tree = tree(schema(4));
+        final ListProcessingReport report = newReport();
+        final SyntaxSnapshot snapshot = processor.check(report, tree);
+
+        assertEquals(report.asJson(), rawProcess(tree));
+        assertFalse(snapshot.isSuccess());
+        assertSame(snapshot.getTree(), tree);
+    }
+
+    @Test
+    public void recheckAfterReplaceReportsTheSameMessagesAsACheck()
+        throws ProcessingException
+    {
+        final ObjectNode node = schema(4);
+        final SyntaxSnapshot snapshot = processor.check(newReport(),
+            tree(node));
+
+        final ObjectNode edited = node.deepCopy();
+        ((ObjectNode) edited.path("properties").path("p1"))
+            .put("type", "string");
+        final JsonNode patch = patch(op("replace", "/properties/p1/type",
+            null));
+
+        assertRecheck(snapshot, edited, patch);
+    }
+
+    @Test
+    public void recheckAfterArrayEditsReportsTheSameMessagesAsACheck()
+        throws ProcessingException
+    {
+        final ObjectNode node = schema(4);
+        final SyntaxSnapshot snapshot = processor.check(newReport(),
+            tree(node));
+
+        /*
+         * Remove the first element of allOf, shifting the second one, and
+         * add a new element at the end
+         */
+        final ObjectNode edited = node.deepCopy();
+        final ArrayNode allOf = (ArrayNode) edited.path("allOf");
+        allOf.remove(0);
+        allOf.addObject().put("minItems", -1);
+        final JsonNode patch = patch(op("remove", "/allOf/0", null),
+            op("add", "/allOf/-", null));
+
+        assertRecheck(snapshot, edited, patch);
+    }
+
+    @Test
+    public void recheckAfterMoveReportsTheSameMessagesAsACheck()
+        throws ProcessingException
+    {
+        final ObjectNode node = schema(4);
+        final SyntaxSnapshot snapshot = processor.check(newReport(),
+            tree(node));
+
+        final ObjectNode edited = node.deepCopy();
+        final ObjectNode properties = (ObjectNode) edited.path("properties");
+        properties.set("moved", properties.remove("p2"));
+        final JsonNode patch = patch(op("move", "/properties/moved",
+            "/properties/p2"));
+
+        assertRecheck(snapshot, edited, patch);
+    }
+
+    @Test
+    public void onlySubschemasAffectedByAnEditAreCheckedAgain()
+        throws ProcessingException
+    {
+        final ObjectNode node = schema(8);
+        SyntaxSnapshot snapshot = processor.check(newReport(), tree(node));
+        typeChecks.set(0);
+
+        final ObjectNode edited = node.deepCopy();
+        ((ObjectNode) edited.path("properties").path("p3"))
+            .put("type", "string");
+        final ImmutableList<JsonPointer> changed
+            = ImmutableList.of(JsonPointer.of("properties", "p3", "type"));
+        final ListProcessingReport report = newReport();
+
+        snapshot = processor.recheck(report, snapshot, tree(edited), changed);
+
+        assertEquals(typeChecks.get(), 1);
+        assertEquals(report.asJson(), rawProcess(tree(edited)));
+
+        typeChecks.set(0);
+        processor.recheck(newReport(), snapshot, tree(edited),
+            ImmutableList.<JsonPointer>of());
+        assertEquals(typeChecks.get(), 0);
+    }
+
+    @Test
+    public void snapshotsOfAnotherProcessorAreNotReused()
+        throws ProcessingException
+    {
+        final ObjectNode node = schema(4);
+        final SyntaxSnapshot snapshot
+            = new SyntaxProcessor(BUNDLE, DICT).check(newReport(), tree(node));
+        typeChecks.set(0);
+
+        final ListProcessingReport report = newReport();
+        processor.recheck(report, snapshot, tree(node),
+            ImmutableList.<JsonPointer>of());
+
+        assertTrue(typeChecks.get() > 0);
+        assertEquals(report.asJson(), rawProcess(tree(node)));
+    }
+
+    @Test
+    public void invalidPatchesAreRejected()
+        throws ProcessingException
+    {
+        final SyntaxSnapshot snapshot = processor.check(newReport(),
+            tree(schema(1)));
+        final ObjectNode noPath = FACTORY.objectNode().put("op", "remove");
+        final JsonNode[] patches = {
+            FACTORY.objectNode(), patch(noPath),
+            patch(op("add", "foo", null)), patch(op("move", "/foo", null))
+        };
+
+        for (final JsonNode patch: patches)
+            try {
+                processor.recheck(newReport(), snapshot, tree(schema(1)),
+                    patch);
+                fail("No exception thrown for " + patch);
+            } catch (IllegalArgumentException ignored) {
+            }
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void previousSnapshotMustNotBeNull()
+        throws ProcessingException
+    {
+        processor.recheck(newReport(), null, tree(schema(1)),
+            ImmutableList.<JsonPointer>of());
+    }
+
+    private void assertRecheck(final SyntaxSnapshot snapshot,
+        final JsonNode edited, final JsonNode patch)
+        throws ProcessingException
+    {
+        final SchemaTree tree = tree(edited);
+        final ListProcessingReport report = newReport();
+        final ListProcessingReport expected = newReport();
+        final SyntaxSnapshot actual
+            = processor.recheck(report, snapshot, tree, patch);
+
+        processor.rawProcess(expected, tree);
+        assertEquals(report.asJson(), expected.asJson());
+        assertEquals(actual.isSuccess(), expected.isSuccess());
+
+        /*
+         * A snapshot obtained by recheck can itself be reused
+         */
+        final ListProcessingReport again = newReport();
+        processor.recheck(again, actual, tree, patch);
+        assertEquals(again.asJson(), expected.asJson());
+    }
+
+    private JsonNode rawProcess(final SchemaTree tree)
+        throws ProcessingException
+    {
+        final ListProcessingReport report = newReport();
+        processor.rawProcess(report, tree);
+        return report.asJson();
+    }
+
+    private static ListProcessingReport newReport()
+    {
+        return new ListProcessingReport(LogLevel.DEBUG, LogLevel.NONE);
+    }
+
+    private static SchemaTree tree(final JsonNode node)
+    {
+        return new CanonicalSchemaTree(SchemaKey.anonymousKey(), node);
+    }
+
+    private static JsonNode patch(final JsonNode... operations)
+    {
+        final ArrayNode patch = FACTORY.arrayNode();
+        for (final JsonNode operation: operations)
+            patch.add(operation);
+        return patch;
+    }
+
+    private static JsonNode op(final String op, final String path,
+        final String from)
+    {
+        final ObjectNode node = FACTORY.objectNode();
+        node.put("op", op).put("path", path);
+        if (from != null)
+            node.put("from", from);
+        return node;
+    }
+
+    /*
+     * Build a schema with the given number of properties, all of which have
+     * an invalid type, and an allOf with two subschemas
+     */
+    private static ObjectNode schema(final int count)
+    {
+        final ObjectNode schema = FACTORY.objectNode();
+        final ObjectNode properties = schema.putObject("properties");
+        ObjectNode property;
+        for (int i = 0; i < count; i++) {
+            property = properties.putObject("p" + i);
+            property.put("type", 1);
+            property.putObject("not").put("foo", i);
+        }
+        final ArrayNode allOf = schema.putArray("allOf");
+        allOf.addObject().put("minimum", "a");
+        allOf.addObject().put("type", "string").put("bar", true);
+        return schema;
+    }
+
+    private static final class CountingChecker
+        implements SyntaxChecker
+    {
+        private final SyntaxChecker checker;
+        private final AtomicInteger count;
+
+        private CountingChecker(final SyntaxChecker checker,
+            final AtomicInteger count)
+        {
+            this.checker = checker;
+            this.count = count;
+        }
+
+        @Override
+        public EnumSet<NodeType> getValidTypes()
+        {
+            return checker.getValidTypes();
+        }
+
+        @Override
+        public void checkSyntax(final Collection<JsonPointer> pointers,
+            final MessageBundle bundle, final ProcessingReport report,
+            final SchemaTree tree)
+            throws ProcessingException
+        {
+            count.incrementAndGet();
+            checker.checkSyntax(pointers, bundle, report, tree);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.keyword.syntax;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jsonschema.SchemaVersion;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.keyword.syntax.checkers.SyntaxChecker;
+import com.github.fge.jsonschema.core.keyword.syntax.dictionaries.DraftV3SyntaxCheckerDictionary;
+import com.github.fge.jsonschema.core.keyword.syntax.dictionaries.DraftV4HyperSchemaSyntaxCheckerDictionary;
+import com.github.fge.jsonschema.core.keyword.syntax.dictionaries.DraftV4SyntaxCheckerDictionary;
+import com.github.fge.jsonschema.core.messages.JsonSchemaSyntaxMessageBundle;
+import com.github.fge.jsonschema.core.report.ListProcessingReport;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.tree.CanonicalSchemaTree;
+import com.github.fge.jsonschema.core.tree.key.SchemaKey;
+import com.github.fge.jsonschema.core.util.Dictionary;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class SyntaxStreamTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaSyntaxMessageBundle.class);
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+    private static final SchemaKey KEY = SchemaKey.anonymousKey();
+
+    @DataProvider
+    public Iterator<Object[]> getSchemas()
+        throws IOException, URISyntaxException
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        addSchemas(list, DraftV4SyntaxCheckerDictionary.get(), "common");
+        addSchemas(list, DraftV3SyntaxCheckerDictionary.get(), "common");
+        addSchemas(list, DraftV4SyntaxCheckerDictionary.get(), "draftv4");
+        addSchemas(list, DraftV3SyntaxCheckerDictionary.get(), "draftv3");
+        addSchemas(list, DraftV4HyperSchemaSyntaxCheckerDictionary.get(),
+            "hyperschema/draftv4");
+
+        list.add(new Object[] { DraftV3SyntaxCheckerDictionary.get(),
+            SchemaVersion.DRAFTV3.getSchema() });
+        list.add(new Object[] { DraftV4SyntaxCheckerDictionary.get(),
+            SchemaVersion.DRAFTV4.getSchema() });
+        list.add(new Object[] { DraftV4HyperSchemaSyntaxCheckerDictionary.get(),
+            SchemaVersion.DRAFTV4_HYPERSCHEMA.getSchema() });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getSchemas")
+    public void streamedSchemasHaveTheSameMessagesAsTrees(
+        final Dictionary<SyntaxChecker> dict, final JsonNode schema)
+        throws IOException, ProcessingException
+    {
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE, dict);
+        final String text = JacksonUtils.newMapper().writeValueAsString(schema);
+
+        assertEquals(stream(processor, text, Integer.MAX_VALUE),
+            check(processor, text));
+    }
+
+    @Test
+    public void subschemasInArraysAreComparedByContents()
+        throws IOException, ProcessingException
+    {
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE,
+            DraftV3SyntaxCheckerDictionary.get());
+        final ObjectNode schema = FACTORY.objectNode();
+        final ArrayNode type = schema.putArray("type");
+        type.addObject().put("minimum", 2);
+        type.addObject().put("minimum", 1).put("foo", 1);
+        type.addObject().put("minimum", new BigDecimal("1.0")).put("foo", 1);
+        final String text = JacksonUtils.newMapper().writeValueAsString(schema);
+
+        final List<String> expected = check(processor, text);
+
+        assertEquals(stream(processor, text, Integer.MAX_VALUE), expected);
+        assertTrue(expected.toString().contains("duplicate"));
+    }
+
+    @Test
+    public void deeplyNestedSchemasCanBeStreamed()
+        throws IOException, ProcessingException
+    {
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE,
+            DraftV4SyntaxCheckerDictionary.get(), 500);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++)
+            sb.append("{\"not\":");
+        sb.append("{\"minimum\":\"a\"}");
+        for (int i = 0; i < 10000; i++)
+            sb.append('}');
+
+        final List<String> messages
+            = stream(processor, sb.toString(), Integer.MAX_VALUE);
+
+        assertEquals(messages.size(), 1);
+        assertTrue(messages.get(0).contains("maximum depth is 500"));
+    }
+
+    @Test
+    public void keywordValuesCanBeLimitedInSize()
+        throws IOException, ProcessingException
+    {
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE,
+            DraftV4SyntaxCheckerDictionary.get());
+        final ObjectNode schema = FACTORY.objectNode();
+        final ArrayNode values = schema.putArray("enum");
+        for (int i = 0; i < 10; i++)
+            values.addArray().add(i).add(i);
+        schema.putObject("properties").putObject("p").put("minimum", "a");
+
+        final ListProcessingReport report = newReport();
+        processor.checkStream(report, KEY,
+            parser(JacksonUtils.newMapper().writeValueAsString(schema)), 5);
+        final List<ProcessingMessage> messages = Lists.newArrayList(report);
+
+        assertEquals(messages.size(), 2);
+        assertEquals(messages.get(0).getMessage(),
+            BUNDLE.printf("core.valueTooLarge", "enum", 5));
+        assertEquals(messages.get(1).asJson().path("keyword").textValue(),
+            "minimum");
+    }
+
+    @Test
+    public void valuesWhichAreNotObjectsAreChecked()
+        throws IOException, ProcessingException
+    {
+        final SyntaxProcessor processor = new SyntaxProcessor(BUNDLE,
+            DraftV4SyntaxCheckerDictionary.get());
+        final List<String> expected = check(processor, "[1]");
+
+        assertEquals(stream(processor, "[1]", Integer.MAX_VALUE), expected);
+        assertEquals(expected.size(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void maximumNumberOfValuesMustBeStrictlyPositive()
+        throws IOException, ProcessingException
+    {
+        new SyntaxProcessor(BUNDLE, DraftV4SyntaxCheckerDictionary.get())
+            .checkStream(newReport(), KEY, parser("{}"), 0);
+    }
+
+    private static void addSchemas(final List<Object[]> list,
+        final Dictionary<SyntaxChecker> dict, final String prefix)
+        throws IOException, URISyntaxException
+    {
+        final File dir = new File(SyntaxStreamTest.class
+            .getResource("/syntax/" + prefix).toURI());
+        final File[] files = dir.listFiles();
+        assertNotNull(files);
+
+        JsonNode data;
+        for (final File file: files) {
+            if (!file.isFile())
+                continue;
+            data = JsonLoader.fromFile(file);
+            for (final JsonNode test: data.path("valueTests"))
+                list.add(new Object[] { dict, test.get("schema") });
+            for (final JsonNode test: data.path("pointerTests"))
+                list.add(new Object[] { dict, test.get("schema") });
+        }
+    }
+
+    private static List<String> stream(final SyntaxProcessor processor,
+        final String text, final int maxValues)
+        throws IOException, ProcessingException
+    {
+        final ListProcessingReport report = newReport();
+        processor.checkStream(report, KEY, parser(text), maxValues);
+        return sorted(report);
+    }
+
+    private static List<String> check(final SyntaxProcessor processor,
+        final String text)
+        throws IOException, ProcessingException
+    {
+        final ListProcessingReport report = newReport();
+        final JsonNode schema = JacksonUtils.getReader().readTree(text);
+        processor.rawProcess(report, new CanonicalSchemaTree(KEY, schema));
+        return sorted(report);
+    }
+
+    private static JsonParser parser(final String text)
+        throws IOException
+    {
+        return JacksonUtils.getReader().getFactory().createParser(text);
+    }
+
+    /*
+     * Messages are not in the same order when streaming
+     */
+    private static List<String> sorted(final ListProcessingReport report)
+    {
+        final List<String> list = Lists.newArrayList();
+        for (final ProcessingMessage message: report)
+            list.add(message.asJson().toString());
+        Collections.sort(list);
+        return list;
+    }
+
+    private static ListProcessingReport newReport()
+    {
+        return new ListProcessingReport(LogLevel.DEBUG, LogLevel.NONE);
+    }
+}
@@ -21,7 +21,10 @@ package com.github.fge.jsonschema.core.load;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
+import com.github.fge.jsonschema.core.load.download.URIDownloader;
 import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
 import com.github.fge.jsonschema.core.report.ProcessingReport;
 import com.github.fge.jsonschema.core.tree.CanonicalSchemaTree;
@@ -32,6 +35,12 @@ import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
 import static com.github.fge.jsonschema.matchers.ProcessingMessageAssert.*;
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
@@ -81,4 +90,81 @@ public final class RefResolverTest
                 .hasMessage(BUNDLE.printf("refProcessing.danglingRef", "#/a"));
         }
     }
+
+    @Test
+    public void resolutionsAreMemoizedWhenEnabled()
+        throws ProcessingException, IOException
+    {
+        final URIDownloader downloader = spy(new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                return new ByteArrayInputStream("{\"a\":{}}"
+                    .getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader).setCacheSize(0)
+            .freeze());
+        final RefResolver resolver = new RefResolver(loader, 16);
+
+        final ObjectNode node = JacksonUtils.nodeFactory().objectNode();
+        node.putObject("ok").put("$ref", "foo:/bar#/a");
+        node.putObject("dangling").put("$ref", "foo:/bar#/b");
+        final SchemaTree tree
+            = new CanonicalSchemaTree(SchemaKey.anonymousKey(), node);
+        final SchemaTree ok = tree.append(JsonPointer.of("ok"));
+        final SchemaTree dangling = tree.append(JsonPointer.of("dangling"));
+
+        final SchemaTree resolved = resolver.rawProcess(report, ok);
+        assertEquals(resolved.getPointer(), JsonPointer.of("a"));
+        assertSame(resolver.rawProcess(report, tree.append(JsonPointer.of(
+            "ok"))), resolved);
+
+        for (int i = 0; i < 2; i++)
+            try {
+                resolver.rawProcess(report, dangling);
+                fail("No exception thrown!");
+            } catch (ProcessingException e) {
+                assertMessage(e.getProcessingMessage()).hasMessage(
+                    BUNDLE.printf("refProcessing.danglingRef", "foo:/bar#/b"));
+            }
+
+        verify(downloader, times(2)).fetch(URI.create("foo:/bar#"));
+        assertNotSame(new RefResolver(loader).rawProcess(report, ok),
+            resolved);
+    }
+
+    @Test
+    public void memoizedResolutionsAreDroppedOnInvalidation()
+        throws ProcessingException
+    {
+        final URIDownloader downloader = new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                return new ByteArrayInputStream("{\"a\":{}}"
+                    .getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader).freeze());
+        final RefResolver resolver = new RefResolver(loader, 16);
+
+        final ObjectNode node = JacksonUtils.nodeFactory().objectNode();
+        node.put("$ref", "foo:/bar#/a");
+        final SchemaTree tree
+            = new CanonicalSchemaTree(SchemaKey.anonymousKey(), node);
+
+        final SchemaTree resolved = resolver.rawProcess(report, tree);
+        assertSame(resolver.rawProcess(report, tree), resolved);
+        loader.invalidate(URI.create("foo:/bar#"));
+        final SchemaTree reloaded = resolver.rawProcess(report, tree);
+        assertNotSame(reloaded.getBaseNode(), resolved.getBaseNode());
+        assertEquals(reloaded.getNode(), resolved.getNode());
+    }
 }
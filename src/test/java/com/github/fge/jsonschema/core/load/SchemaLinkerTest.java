@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
+import com.github.fge.jsonschema.core.load.download.URIDownloader;
+import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.core.tree.SchemaTree;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.testng.collections.Sets;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+public final class SchemaLinkerTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaCoreMessageBundle.class);
+
+    private static final String ROOT = "{\"definitions\":{"
+        + "\"a\":{\"$ref\":\"#/definitions/b\"},"
+        + "\"b\":{\"$ref\":\"#/definitions/c\"},"
+        + "\"c\":{\"type\":\"string\"},"
+        + "\"x\":{\"$ref\":\"#/definitions/y\"},"
+        + "\"y\":{\"$ref\":\"#/definitions/x\"},"
+        + "\"z\":{\"$ref\":\"#/definitions/z\"},"
+        + "\"w\":{\"$ref\":\"#/definitions/x\"},"
+        + "\"v\":{\"$ref\":\"#/definitions/w\"},"
+        + "\"d\":{\"$ref\":\"#/definitions/nope\"},"
+        + "\"e\":{\"$ref\":\"foo:/other#/definitions/e\"},"
+        + "\"f\":{\"$ref\":\"bar:/nowhere#\"}"
+        + "}}";
+
+    private static final String OTHER = "{\"definitions\":{"
+        + "\"e\":{\"$ref\":\"#/definitions/g\"},"
+        + "\"g\":{\"type\":\"null\"}"
+        + "}}";
+
+    private final ProcessingReport report = mock(ProcessingReport.class);
+
+    private URIDownloader downloader;
+    private SchemaLoader loader;
+    private SchemaTree root;
+
+    @BeforeMethod
+    public void init()
+        throws ProcessingException
+    {
+        downloader = spy(new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                final String s = "foo:/root#".equals(source.toString())
+                    ? ROOT : OTHER;
+                return new ByteArrayInputStream(
+                    s.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        loader = new SchemaLoader(LoadingConfiguration.newBuilder()
+            .addScheme("foo", downloader).freeze());
+        root = loader.get(URI.create("foo:/root#"));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getDefinitions()
+        throws IOException
+    {
+        final Set<Object[]> set = Sets.newHashSet();
+        final Iterator<String> names
+            = JsonLoader.fromString(ROOT).get("definitions").fieldNames();
+        while (names.hasNext())
+            set.add(new Object[] { names.next() });
+        return set.iterator();
+    }
+
+    @Test(dataProvider = "getDefinitions")
+    public void linkedSchemaResolvesAsRefResolverDoes(final String name)
+        throws ProcessingException
+    {
+        final LinkedSchema linked = new SchemaLinker(loader).link(root);
+        final RefResolver resolver = new RefResolver(loader);
+        final SchemaTree tree
+            = root.setPointer(JsonPointer.of("definitions", name));
+
+        SchemaTree expected = null;
+        ProcessingMessage expectedError = null;
+        try {
+            expected = resolver.rawProcess(report, tree);
+        } catch (ProcessingException e) {
+            expectedError = e.getProcessingMessage();
+        }
+
+        try {
+            final SchemaTree actual = linked.rawProcess(report, tree);
+            assertNull(expectedError, "resolution should have failed");
+            assertSame(actual.getBaseNode(), expected.getBaseNode());
+            assertEquals(actual.getPointer(), expected.getPointer());
+        } catch (ProcessingException e) {
+            assertNotNull(expectedError, "resolution should have succeeded");
+            assertEquals(e.getProcessingMessage().asJson(),
+                expectedError.asJson());
+        }
+    }
+
+    @Test
+    public void allErrorsAreFoundAndDocumentsLoadedOnce()
+        throws IOException
+    {
+        final LinkedSchema linked = new SchemaLinker(loader).link(root);
+        final List<ProcessingMessage> errors = linked.getErrors();
+
+        assertFalse(linked.isSuccess());
+        assertSame(linked.getRoot(), root);
+        // x, y, z, w, v (loops), d (dangling), f (unloadable)
+        assertEquals(errors.size(), 7);
+
+        int loops = 0;
+        final String dangling = BUNDLE.printf("refProcessing.danglingRef",
+            "foo:/root#/definitions/nope");
+        boolean danglingFound = false;
+        for (final ProcessingMessage message: errors) {
+            if (message.getMessage().equals(dangling))
+                danglingFound = true;
+            final JsonNode path = message.asJson().get("path");
+            if (path != null)
+                loops++;
+        }
+        assertTrue(danglingFound);
+        assertEquals(loops, 5);
+
+        verify(downloader, times(1)).fetch(URI.create("foo:/root#"));
+        verify(downloader, times(1)).fetch(URI.create("foo:/other#"));
+    }
+
+    @Test
+    public void schemasWithoutErrorsLinkSuccessfully()
+        throws ProcessingException
+    {
+        final SchemaTree tree = loader.get(URI.create("foo:/other#"));
+        final LinkedSchema linked = new SchemaLinker(loader).link(tree);
+        assertTrue(linked.isSuccess());
+        final SchemaTree target = linked.rawProcess(report,
+            tree.setPointer(JsonPointer.of("definitions", "e")));
+        assertEquals(target.getPointer(), JsonPointer.of("definitions", "g"));
+        assertSame(linked.rawProcess(report, target), target);
+    }
+}
@@ -26,19 +26,38 @@ import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
 import com.github.fge.jsonschema.core.load.configuration.LoadingConfigurationBuilder;
 import com.github.fge.jsonschema.core.load.uri.URITranslatorConfiguration;
+import com.github.fge.jsonschema.core.load.download.AsyncURIDownloader;
 import com.github.fge.jsonschema.core.load.download.URIDownloader;
+import com.github.fge.jsonschema.core.load.store.FileSchemaStore;
+import com.github.fge.jsonschema.core.load.store.SchemaStore;
 import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
 import com.github.fge.jsonschema.core.ref.JsonRef;
 import com.github.fge.jsonschema.core.report.LogLevel;
 import com.github.fge.jsonschema.core.tree.SchemaTree;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.github.fge.jsonschema.matchers.ProcessingMessageAssert.*;
 import static org.mockito.Mockito.*;
@@ -220,4 +239,408 @@ public final class SchemaLoaderTest
         loader.get(uri);
         verify(downloader, times(2)).fetch(uri);
     }
+
+    @Test
+    public void rootTreesAreCachedAlongWithSchemas()
+        throws ProcessingException
+    {
+        final URI uri = URI.create("foo:/baz#");
+        final URIDownloader downloader = new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                return new ByteArrayInputStream(BYTES);
+            }
+        };
+        final String location = "http://foo.bar/baz#";
+        final LoadingConfigurationBuilder builder = LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader)
+            .preloadSchema(location, JacksonUtils.nodeFactory().objectNode());
+
+        SchemaLoader loader = new SchemaLoader(builder.freeze());
+        assertSame(loader.get(uri), loader.get(uri));
+        assertSame(loader.get(URI.create(location)),
+            loader.get(URI.create("http://foo.bar/a/../baz")));
+
+        loader = new SchemaLoader(builder.setCacheSize(0).freeze());
+        assertNotSame(loader.get(uri), loader.get(uri));
+        assertSame(loader.get(URI.create(location)),
+            loader.get(URI.create(location)));
+    }
+
+    @Test
+    public void prefetchLoadsTheTransitiveClosureOnce()
+        throws ProcessingException, IOException
+    {
+        /*
+         * foo:/n# references foo:/2n# and foo:/(2n + 1)#, up to 31; foo:/0#
+         * cannot be loaded
+         */
+        final URIDownloader downloader = spy(new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                final int n = Integer.parseInt(source.getPath().substring(1));
+                if (n == 0)
+                    throw new IOException();
+                final StringBuilder sb = new StringBuilder("{");
+                if (2 * n < 32)
+                    sb.append("\"a\":{\"$ref\":\"").append(2 * n)
+                        .append("#\"},\"b\":[{\"$ref\":\"foo:/")
+                        .append(2 * n + 1).append("#/x\"}],");
+                sb.append("\"x\":{\"$ref\":\"foo:/0#\"}}");
+                return new ByteArrayInputStream(sb.toString()
+                    .getBytes(UTF_8));
+            }
+        });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+                .newBuilder().addScheme("foo", downloader)
+                .setPrefetchExecutor(executor).freeze());
+            loader.prefetch(URI.create("foo:/1"));
+            verify(downloader, times(32)).fetch(any(URI.class));
+            for (int i = 1; i < 32; i++)
+                loader.get(URI.create("foo:/" + i));
+            verify(downloader, times(32)).fetch(any(URI.class));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void prefetchingLongChainsDoesNotGrowTheStack()
+    {
+        /*
+         * foo:/n# references foo:/(n + 1)#, up to foo:/9999#
+         */
+        final int length = 10000;
+        final AtomicInteger fetches = new AtomicInteger();
+        final URIDownloader downloader = new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+            {
+                fetches.incrementAndGet();
+                final int n = Integer.parseInt(source.getPath().substring(1));
+                final String content = n + 1 < length
+                    ? "{\"$ref\":\"" + (n + 1) + "#\"}" : "{}";
+                return new ByteArrayInputStream(content.getBytes(UTF_8));
+            }
+        };
+        final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader).freeze());
+
+        loader.prefetch(URI.create("foo:/0"));
+        assertEquals(fetches.get(), length);
+    }
+
+    @Test
+    public void asyncLoadsAreSharedCachedAndCanTimeOut()
+        throws ProcessingException, IOException, InterruptedException
+    {
+        final Map<URI, SettableFuture<byte[]>> fetches
+            = Maps.newConcurrentMap();
+        final AsyncURIDownloader downloader = spy(new AsyncURIDownloader()
+        {
+            @Override
+            public ListenableFuture<byte[]> fetchAsync(final URI source)
+            {
+                final SettableFuture<byte[]> ret = SettableFuture.create();
+                fetches.put(source, ret);
+                return ret;
+            }
+
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                throw new IOException();
+            }
+        });
+        final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader).freeze());
+
+        final URI uri = URI.create("foo:/baz#");
+        final ListenableFuture<SchemaTree> timed
+            = loader.getAsync(uri, 10L, TimeUnit.MILLISECONDS);
+        final ListenableFuture<SchemaTree> first = loader.getAsync(uri);
+        final ListenableFuture<SchemaTree> second = loader.getAsync(uri);
+        verify(downloader, times(1)).fetchAsync(uri);
+
+        try {
+            timed.get();
+            fail("No exception thrown!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertFalse(first.isDone());
+
+        fetches.get(uri).set(BYTES);
+        try {
+            assertSame(first.get(), second.get());
+            assertSame(loader.get(uri), first.get());
+        } catch (ExecutionException e) {
+            fail("Unexpected failure", e.getCause());
+        }
+        verify(downloader, never()).fetch(any(URI.class));
+
+        final URI other = URI.create("foo:/other#");
+        final ListenableFuture<SchemaTree> failed = loader.getAsync(other);
+        fetches.get(other).setException(new IOException("boom"));
+        try {
+            failed.get();
+            fail("No exception thrown!");
+        } catch (ExecutionException e) {
+            final ProcessingException cause
+                = (ProcessingException) e.getCause();
+            assertMessage(cause.getProcessingMessage())
+                .hasMessage(BUNDLE.printf("uriManager.uriIOError", other));
+        }
+    }
+
+    @Test
+    public void asyncLoadsDoNotBlockTheCallerByDefault()
+        throws InterruptedException, ExecutionException, TimeoutException
+    {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final URIDownloader downloader = new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return new ByteArrayInputStream(BYTES);
+            }
+        };
+        final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader).freeze());
+
+        final ListenableFuture<SchemaTree> future
+            = loader.getAsync(URI.create("foo:/baz#"));
+        assertFalse(future.isDone());
+
+        latch.countDown();
+        assertEquals(future.get(1L, TimeUnit.SECONDS).getBaseNode(),
+            JacksonUtils.nodeFactory().objectNode());
+    }
+
+    @Test
+    public void refreshesDoNotRunInTheCallerByDefault()
+        throws ProcessingException, InterruptedException
+    {
+        final URI uri = URI.create("foo:/baz#");
+        final Queue<Thread> threads = new ConcurrentLinkedQueue<Thread>();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final URIDownloader downloader = new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                threads.add(Thread.currentThread());
+                latch.countDown();
+                return new ByteArrayInputStream(BYTES);
+            }
+        };
+        final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader)
+            .setRefreshAfterWrite(20L, TimeUnit.MILLISECONDS).freeze());
+
+        loader.get(uri);
+        Thread.sleep(40L);
+        loader.get(uri);
+        assertTrue(latch.await(1L, TimeUnit.SECONDS));
+        assertSame(threads.poll(), Thread.currentThread());
+        assertNotSame(threads.poll(), Thread.currentThread());
+    }
+
+    @Test
+    public void storedSchemasAreNotFetchedAgainByOtherLoaders()
+        throws ProcessingException, IOException
+    {
+        final URI uri = URI.create("foo:/baz#");
+        final URIDownloader downloader = spy(new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                return new ByteArrayInputStream(BYTES);
+            }
+        });
+        final Path directory = Files.createTempDirectory("schemastore");
+        final SchemaStore store = new FileSchemaStore(directory);
+        final LoadingConfiguration cfg = LoadingConfiguration.newBuilder()
+            .addScheme("foo", downloader).setSchemaStore(store)
+            .addStoredScheme("foo").freeze();
+
+        try {
+            new SchemaLoader(cfg).get(uri);
+            final SchemaTree tree = new SchemaLoader(cfg).get(uri);
+            verify(downloader, times(1)).fetch(uri);
+            assertEquals(tree.getBaseNode(),
+                JacksonUtils.nodeFactory().objectNode());
+        } finally {
+            store.remove(uri);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void localSchemasAreNotStored()
+        throws ProcessingException, IOException
+    {
+        final Path directory = Files.createTempDirectory("schemastore");
+        final Path file = Files.createTempFile("schema", ".json");
+        final URI uri = URI.create(file.toUri() + "#");
+        final LoadingConfiguration cfg = LoadingConfiguration.newBuilder()
+            .setSchemaStore(new FileSchemaStore(directory)).freeze();
+
+        try {
+            Files.write(file, "{\"v\":1}".getBytes(UTF_8));
+            assertEquals(new SchemaLoader(cfg).get(uri).getBaseNode()
+                .get("v").intValue(), 1);
+            Files.write(file, "{\"v\":2}".getBytes(UTF_8));
+            assertEquals(new SchemaLoader(cfg).get(uri).getBaseNode()
+                .get("v").intValue(), 2);
+        } finally {
+            Files.delete(file);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void invalidatedSchemasAreFetchedAgain()
+        throws ProcessingException, IOException
+    {
+        final URI uri = URI.create("foo:/baz#");
+        final URIDownloader downloader = spy(new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                return new ByteArrayInputStream(BYTES);
+            }
+        });
+        final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader).freeze());
+
+        loader.get(uri);
+        loader.get(uri);
+        verify(downloader, times(1)).fetch(uri);
+        loader.invalidate(URI.create("foo:/a/../baz"));
+        loader.get(uri);
+        verify(downloader, times(2)).fetch(uri);
+        loader.invalidateAll();
+        loader.get(uri);
+        verify(downloader, times(3)).fetch(uri);
+    }
+
+    @Test
+    public void expiredSchemasAreFetchedAgain()
+        throws ProcessingException, IOException, InterruptedException
+    {
+        final URI uri = URI.create("foo:/baz#");
+        final URIDownloader downloader = spy(new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                return new ByteArrayInputStream(BYTES);
+            }
+        });
+        final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader)
+            .setExpireAfterWrite(20L, TimeUnit.MILLISECONDS).freeze());
+
+        loader.get(uri);
+        Thread.sleep(40L);
+        loader.get(uri);
+        verify(downloader, times(2)).fetch(uri);
+    }
+
+    @Test
+    public void expiredSchemasAreNotReadFromTheStore()
+        throws ProcessingException, IOException, InterruptedException
+    {
+        final URI uri = URI.create("foo:/baz#");
+        final AtomicInteger version = new AtomicInteger(1);
+        final URIDownloader downloader = new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                return new ByteArrayInputStream(("{\"v\":"
+                    + version.get() + '}').getBytes(UTF_8));
+            }
+        };
+        final Path directory = Files.createTempDirectory("schemastore");
+        final SchemaStore store = new FileSchemaStore(directory);
+        final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader).setSchemaStore(store)
+            .addStoredScheme("foo")
+            .setExpireAfterWrite(20L, TimeUnit.MILLISECONDS).freeze());
+
+        try {
+            assertEquals(loader.get(uri).getBaseNode().get("v").intValue(), 1);
+            version.set(2);
+            Thread.sleep(40L);
+            assertEquals(loader.get(uri).getBaseNode().get("v").intValue(), 2);
+        } finally {
+            store.remove(uri);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void refreshedSchemasAreReloadedInTheBackground()
+        throws ProcessingException, InterruptedException
+    {
+        final URI uri = URI.create("foo:/baz#");
+        final AtomicInteger version = new AtomicInteger();
+        final URIDownloader downloader = new URIDownloader()
+        {
+            @Override
+            public InputStream fetch(final URI source)
+                throws IOException
+            {
+                return new ByteArrayInputStream(("{\"v\":"
+                    + version.getAndIncrement() + '}').getBytes(UTF_8));
+            }
+        };
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        final Executor executor = new Executor()
+        {
+            @Override
+            public void execute(final Runnable command)
+            {
+                tasks.add(command);
+            }
+        };
+        final SchemaLoader loader = new SchemaLoader(LoadingConfiguration
+            .newBuilder().addScheme("foo", downloader)
+            .setPrefetchExecutor(executor)
+            .setRefreshAfterWrite(20L, TimeUnit.MILLISECONDS).freeze());
+
+        assertEquals(loader.get(uri).getBaseNode().get("v").intValue(), 0);
+        Thread.sleep(40L);
+        assertEquals(loader.get(uri).getBaseNode().get("v").intValue(), 0);
+        assertEquals(tasks.size(), 1);
+        tasks.poll().run();
+        assertEquals(loader.get(uri).getBaseNode().get("v").intValue(), 1);
+    }
 }
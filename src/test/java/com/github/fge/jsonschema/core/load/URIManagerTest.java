@@ -21,8 +21,15 @@ package com.github.fge.jsonschema.core.load;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.github.fge.jsonschema.core.load.configuration.LoadingConfiguration;
@@ -32,13 +39,17 @@ import com.github.fge.jsonschema.core.ref.JsonRef;
 import com.github.fge.jsonschema.core.report.LogLevel;
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.Iterator;
 
 import static com.github.fge.jsonschema.matchers.ProcessingMessageAssert.*;
 import static org.mockito.Mockito.*;
@@ -148,4 +159,110 @@ public final class URIManagerTest
         // validate correctness of loaded equivalent sources
         assertTrue(JsonNumEquals.getInstance().equivalent(node1, node2));
     }
+
+    @DataProvider
+    public Iterator<Object[]> binaryFormats()
+    {
+        return ImmutableList.of(
+            new Object[] { new SmileFactory() },
+            new Object[] { new CBORFactory() }
+        ).iterator();
+    }
+
+    @Test(dataProvider = "binaryFormats")
+    public void binaryContentIsDetected(final JsonFactory factory)
+        throws IOException, ProcessingException
+    {
+        final URI uri = URI.create("foo://bar");
+        final JsonNode schema = JsonLoader.fromString(
+            "{\"type\":\"number\",\"maximum\":1.5,\"enum\":[1,2.5]}");
+        final byte[] content = new ObjectMapper(factory)
+            .writeValueAsBytes(schema);
+
+        when(mock.fetch(any(URI.class)))
+            .thenReturn(new ByteArrayInputStream(content));
+
+        final LoadingConfiguration cfg = LoadingConfiguration.newBuilder()
+            .addScheme("foo", mock).freeze();
+
+        final URIManager manager = new URIManager(cfg);
+
+        assertEquals(manager.getContent(uri), schema);
+    }
+
+    @Test(dataProvider = "binaryFormats")
+    public void binaryContentHonorsParserFeatures(final JsonFactory factory)
+        throws IOException
+    {
+        final URI uri = URI.create("foo://bar");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (
+            final JsonGenerator generator = factory.createGenerator(out);
+        ) {
+            generator.writeStartObject();
+            generator.writeNumberField("a", 1);
+            generator.writeNumberField("a", 2);
+            generator.writeEndObject();
+        }
+
+        when(mock.fetch(any(URI.class)))
+            .thenReturn(new ByteArrayInputStream(out.toByteArray()));
+
+        final LoadingConfiguration cfg = LoadingConfiguration.newBuilder()
+            .addScheme("foo", mock)
+            .addParserFeature(JsonParser.Feature.STRICT_DUPLICATE_DETECTION)
+            .freeze();
+
+        final URIManager manager = new URIManager(cfg);
+
+        try {
+            manager.getContent(uri);
+            fail("No exception thrown!");
+        } catch (ProcessingException e) {
+            assertMessage(e.getProcessingMessage())
+                .hasMessage(BUNDLE.printf("uriManager.uriNotJson", uri))
+                .hasTextField("parsingMessage").hasLevel(LogLevel.FATAL)
+                .hasField("uri", uri);
+        }
+    }
+
+    @Test
+    public void headerlessSmileContentRequiresAConfiguredFormat()
+        throws IOException, ProcessingException
+    {
+        final URI uri = URI.create("foo://bar");
+        final JsonNode schema = JsonLoader.fromString("{\"type\":\"null\"}");
+        final SmileFactory factory = new SmileFactory();
+        factory.disable(SmileGenerator.Feature.WRITE_HEADER);
+        final byte[] content = new ObjectMapper(factory)
+            .writeValueAsBytes(schema);
+
+        when(mock.fetch(any(URI.class)))
+            .thenReturn(new ByteArrayInputStream(content));
+
+        final LoadingConfiguration cfg = LoadingConfiguration.newBuilder()
+            .addScheme("foo", mock)
+            .setContentFormat("FOO", ContentFormat.SMILE).freeze();
+
+        final URIManager manager = new URIManager(cfg);
+
+        assertEquals(manager.getContent(uri), schema);
+    }
+
+    @Test
+    public void shortJSONContentIsNotMistakenForBinaryContent()
+        throws IOException, ProcessingException
+    {
+        final URI uri = URI.create("foo://bar");
+
+        when(mock.fetch(any(URI.class)))
+            .thenReturn(new ByteArrayInputStream("1".getBytes(UTF_8)));
+
+        final LoadingConfiguration cfg = LoadingConfiguration.newBuilder()
+            .addScheme("foo", mock).freeze();
+
+        final URIManager manager = new URIManager(cfg);
+
+        assertEquals(manager.getContent(uri).intValue(), 1);
+    }
 }
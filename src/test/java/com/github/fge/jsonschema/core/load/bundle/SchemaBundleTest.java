@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load.bundle;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public final class SchemaBundleTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaCoreMessageBundle.class);
+
+    @Test
+    public void bundlesRoundTrip()
+        throws IOException
+    {
+        final Map<URI, JsonNode> schemas = Maps.newLinkedHashMap();
+        for (int i = 10; i > 0; i--)
+            schemas.put(URI.create("http://my.site/schema" + i + "#"),
+                JsonLoader.fromString("{\"id\":\"schema" + i + "\","
+                    + "\"maximum\":" + i + ".10,\"enum\":[null,true,\"a\"]}"));
+
+        final Map<URI, JsonNode> actual = SchemaBundle.read(
+            new ByteArrayInputStream(toBytes(schemas)));
+
+        assertEquals(Lists.newArrayList(actual.entrySet()),
+            Lists.newArrayList(schemas.entrySet()));
+        assertTrue(actual.get(URI.create("http://my.site/schema1#"))
+            .get("maximum").isBigDecimal());
+    }
+
+    @Test
+    public void bundleIsReadWithoutClosingTheStream()
+        throws IOException
+    {
+        final Map<URI, JsonNode> schemas = Maps.newHashMap();
+        schemas.put(URI.create("http://my.site/a#"),
+            JacksonUtils.nodeFactory().objectNode());
+        final InputStream in = new ByteArrayInputStream(toBytes(schemas))
+        {
+            @Override
+            public void close()
+            {
+                fail("stream closed");
+            }
+        };
+
+        assertEquals(SchemaBundle.read(in), schemas);
+    }
+
+    @Test
+    public void readingJsonTextFails()
+    {
+        try {
+            SchemaBundle.read(new ByteArrayInputStream(
+                "{}".getBytes(StandardCharsets.UTF_8)));
+            fail("No exception thrown!!");
+        } catch (IOException ignored) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void readingAnotherSmileDocumentFails()
+        throws IOException
+    {
+        final Map<URI, JsonNode> schemas = Maps.newHashMap();
+        final byte[] bytes = toBytes(schemas);
+        final ObjectNode header = JacksonUtils.nodeFactory().objectNode();
+        header.put("format", "something-else");
+
+        try {
+            // A bundle with no schemas is a valid bundle
+            assertTrue(SchemaBundle.read(new ByteArrayInputStream(bytes))
+                .isEmpty());
+            SchemaBundle.read(new ByteArrayInputStream(
+                new ObjectMapper(new SmileFactory())
+                    .writeValueAsBytes(header)));
+            fail("No exception thrown!!");
+        } catch (IOException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("schemaBundle.notABundle"));
+        }
+    }
+
+    @Test
+    public void truncatedBundlesAreDetected()
+        throws IOException
+    {
+        final Map<URI, JsonNode> schemas = Maps.newLinkedHashMap();
+        schemas.put(URI.create("http://my.site/a#"),
+            JacksonUtils.nodeFactory().objectNode());
+        schemas.put(URI.create("http://my.site/b#"),
+            JacksonUtils.nodeFactory().arrayNode());
+        final byte[] bytes = toBytes(schemas);
+
+        try {
+            SchemaBundle.read(new ByteArrayInputStream(
+                Arrays.copyOf(bytes, bytes.length - 2)));
+            fail("No exception thrown!!");
+        } catch (IOException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("schemaBundle.truncated"));
+        }
+    }
+
+    @Test
+    public void bundlesCanBeBuiltFromDirectories()
+        throws IOException
+    {
+        final Path directory = Files.createTempDirectory("bundle");
+        final Path schema = Files.write(directory.resolve("a.json"),
+            "{\"type\":\"null\"}".getBytes(StandardCharsets.UTF_8));
+        final Path bundle = directory.resolve("schemas.bundle");
+
+        try {
+            SchemaBundle.main(bundle.toString(), "http://my.site/",
+                directory.toString());
+            final Map<URI, JsonNode> schemas;
+            try (
+                final InputStream in = Files.newInputStream(bundle);
+            ) {
+                schemas = SchemaBundle.read(in);
+            }
+            assertEquals(schemas.keySet().size(), 1);
+            assertEquals(schemas.get(URI.create("http://my.site/a.json#")),
+                JsonLoader.fromString("{\"type\":\"null\"}"));
+        } finally {
+            Files.deleteIfExists(bundle);
+            Files.delete(schema);
+            Files.delete(directory);
+        }
+    }
+
+    private static byte[] toBytes(final Map<URI, JsonNode> schemas)
+        throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SchemaBundle.write(schemas, out);
+        return out.toByteArray();
+    }
+}
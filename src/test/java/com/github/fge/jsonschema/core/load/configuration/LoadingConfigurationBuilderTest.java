@@ -19,10 +19,12 @@
 
 package com.github.fge.jsonschema.core.load.configuration;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.JsonNumEquals;
 import com.github.fge.jsonschema.SchemaVersion;
+import com.github.fge.jsonschema.core.load.bundle.SchemaBundle;
 import com.github.fge.jsonschema.core.load.download.URIDownloader;
 import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
 import com.github.fge.msgsimple.bundle.MessageBundle;
@@ -31,10 +33,20 @@ import com.google.common.collect.Lists;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
@@ -73,6 +85,37 @@ public final class LoadingConfigurationBuilderTest
         assertNull(cfg.freeze().getDownloaderMap().get(scheme));
     }
 
+    @Test
+    public void cannotSetNullPrefetchExecutor()
+    {
+        try {
+            cfg.setPrefetchExecutor(null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("loadingCfg.nullExecutor"));
+        }
+    }
+
+    @Test
+    public void cacheDurationsMustBeStrictlyPositive()
+    {
+        try {
+            cfg.setExpireAfterWrite(0L, TimeUnit.SECONDS);
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("loadingCfg.invalidDuration"));
+        }
+        try {
+            cfg.setRefreshAfterWrite(-1L, TimeUnit.SECONDS);
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("loadingCfg.invalidDuration"));
+        }
+    }
+
     @Test
     public void cannotSetNullDereferencingMode()
     {
@@ -132,4 +175,194 @@ public final class LoadingConfigurationBuilderTest
                BUNDLE.getMessage("loadingCfg.noIDInSchema"));
         }
     }
+
+    @Test
+    public void directoriesArePreloadedByPathOrId()
+        throws IOException
+    {
+        final Path directory = Files.createTempDirectory("preload");
+        final Path subdirectory = directory.resolve("sub");
+        Files.createDirectory(subdirectory);
+        final List<Path> files = Lists.newArrayList(
+            write(directory.resolve("a.json"), "{\"type\":\"string\"}"),
+            write(subdirectory.resolve("b.json"), "{\"id\":\"c.json\"}"),
+            write(directory.resolve("d.json"),
+                "{\"id\":\"http://other.site/d#\"}"),
+            write(directory.resolve("README"), "not JSON")
+        );
+
+        try {
+            final Map<URI, JsonNode> map = LoadingConfiguration.newBuilder()
+                .preloadDirectory(directory, "http://my.site/schemas/")
+                .freeze().getPreloadedSchemas();
+            assertEquals(map.get(URI.create("http://my.site/schemas/a.json#")),
+                JacksonUtils.nodeFactory().objectNode().put("type", "string"));
+            assertTrue(map.containsKey(
+                URI.create("http://my.site/schemas/sub/c.json#")));
+            assertTrue(map.containsKey(URI.create("http://other.site/d#")));
+            assertEquals(map.size(), SchemaVersion.values().length + 3);
+        } finally {
+            for (final Path file: files)
+                Files.delete(file);
+            Files.delete(subdirectory);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void archivesArePreloaded()
+        throws IOException
+    {
+        final Path archive = Files.createTempFile("preload", ".zip");
+
+        try {
+            try (
+                final ZipOutputStream out
+                    = new ZipOutputStream(Files.newOutputStream(archive));
+            ) {
+                out.putNextEntry(new ZipEntry("dir/"));
+                out.putNextEntry(new ZipEntry("dir/a.json"));
+                out.write("{}".getBytes(StandardCharsets.UTF_8));
+                out.putNextEntry(new ZipEntry("b.json"));
+                out.write("{}".getBytes(StandardCharsets.UTF_8));
+            }
+            final Map<URI, JsonNode> map = LoadingConfiguration.newBuilder()
+                .preloadArchive(archive, "http://my.site/zip/")
+                .freeze().getPreloadedSchemas();
+            assertTrue(map.containsKey(
+                URI.create("http://my.site/zip/dir/a.json#")));
+            assertTrue(map.containsKey(
+                URI.create("http://my.site/zip/b.json#")));
+        } finally {
+            Files.delete(archive);
+        }
+    }
+
+    @Test
+    public void namesWithAColonAreResolvedAgainstTheBaseURI()
+        throws IOException
+    {
+        final Path archive = Files.createTempFile("preload", ".zip");
+
+        try {
+            try (
+                final ZipOutputStream out
+                    = new ZipOutputStream(Files.newOutputStream(archive));
+            ) {
+                out.putNextEntry(new ZipEntry("v1:a.json"));
+                out.write("{}".getBytes(StandardCharsets.UTF_8));
+            }
+            final Map<URI, JsonNode> map = LoadingConfiguration.newBuilder()
+                .preloadArchive(archive, "http://my.site/schemas/")
+                .freeze().getPreloadedSchemas();
+            assertTrue(map.containsKey(
+                URI.create("http://my.site/schemas/v1:a.json#")));
+            assertFalse(map.containsKey(URI.create("v1:a.json#")));
+        } finally {
+            Files.delete(archive);
+        }
+    }
+
+    @Test
+    public void classpathPreloadingHonorsParserFeatures()
+        throws IOException
+    {
+        final Map<URI, JsonNode> map = LoadingConfiguration.newBuilder()
+            .addParserFeature(JsonParser.Feature.ALLOW_COMMENTS)
+            .addParserFeature(JsonParser.Feature.ALLOW_SINGLE_QUOTES)
+            .addParserFeature(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .preloadClasspath("/load", "resource:/load/")
+            .freeze().getPreloadedSchemas();
+        assertEquals(
+            map.get(URI.create("resource:/load/nonstandard-source.json#")),
+            map.get(URI.create("resource:/load/standard-source.json#")));
+    }
+
+    @Test
+    public void invalidFilesAbortBulkPreloading()
+        throws IOException
+    {
+        final LoadingConfigurationBuilder builder
+            = LoadingConfiguration.newBuilder();
+        try {
+            builder.preloadClasspath("/load", "resource:/load/");
+            fail("No exception thrown!!");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith(
+                "cannot read schema at path \"nonstandard-source.json\""));
+        }
+        assertEquals(builder.freeze().getPreloadedSchemas().size(),
+            SchemaVersion.values().length);
+    }
+
+    @Test
+    public void bulkPreloadingCannotOverwriteSchemas()
+        throws IOException
+    {
+        final Path directory = Files.createTempDirectory("preload");
+        final Path file = write(directory.resolve("a.json"),
+            "{\"id\":\"http://json-schema.org/draft-04/schema#\"}");
+        final Path other = write(directory.resolve("b.json"), "{}");
+        final LoadingConfigurationBuilder builder
+            = LoadingConfiguration.newBuilder();
+
+        try {
+            builder.preloadDirectory(directory, "http://my.site/");
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), BUNDLE.printf(
+                "loadingCfg.duplicateURI",
+                "http://json-schema.org/draft-04/schema#"));
+        } finally {
+            Files.delete(file);
+            Files.delete(other);
+            Files.delete(directory);
+        }
+        assertFalse(builder.freeze().getPreloadedSchemas()
+            .containsKey(URI.create("http://my.site/b.json#")));
+    }
+
+    @Test
+    public void bulkPreloadingRequiresADirectoryBaseURI()
+        throws IOException
+    {
+        final String input = "http://my.site/schemas";
+        try {
+            cfg.preloadClasspath("/load", input);
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.printf("uriChecks.noEndingSlash", input + '#'));
+        }
+    }
+
+    @Test
+    public void bundlesArePreloaded()
+        throws IOException
+    {
+        final URI uri = URI.create("http://my.site/bundled#");
+        final JsonNode schema = JacksonUtils.nodeFactory().objectNode()
+            .put("type", "integer");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SchemaBundle.write(Collections.singletonMap(uri, schema), out);
+
+        final LoadingConfigurationBuilder builder
+            = LoadingConfiguration.newBuilder()
+            .preloadBundle(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(builder.freeze().getPreloadedSchemas().get(uri), schema);
+
+        try {
+            builder.preloadBundle(new ByteArrayInputStream(out.toByteArray()));
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.printf("loadingCfg.duplicateURI", uri));
+        }
+    }
+
+    private static Path write(final Path path, final String content)
+        throws IOException
+    {
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
 }
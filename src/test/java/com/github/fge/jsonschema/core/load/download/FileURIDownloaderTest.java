@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load.download;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.load.SchemaLoader;
+import com.github.fge.jsonschema.core.report.LogLevel;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import static com.github.fge.jsonschema.matchers.ProcessingMessageAssert.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.*;
+
+public final class FileURIDownloaderTest
+{
+    private final URIDownloader downloader = FileURIDownloader.getInstance();
+
+    @Test
+    public void smallAndLargeFilesAreReadInFull()
+        throws IOException
+    {
+        final ArrayNode large = JacksonUtils.nodeFactory().arrayNode();
+        while (large.toString().length() < FileURIDownloader.MAP_THRESHOLD)
+            for (int i = 0; i < 10000; i++)
+                large.add("some text " + i);
+
+        for (final String content: new String[] { "{}", large.toString() }) {
+            final Path file = Files.createTempFile("schema", ".json");
+            try {
+                Files.write(file, content.getBytes(UTF_8));
+                final URI uri = URI.create(file.toUri() + "#");
+                try (
+                    final InputStream in = downloader.fetch(uri);
+                ) {
+                    assertEquals(new String(ByteStreams.toByteArray(in),
+                        UTF_8), content);
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void missingFilesAreReportedAsIOErrors()
+        throws IOException
+    {
+        final Path file = Files.createTempFile("schema", ".json");
+        Files.delete(file);
+        downloader.fetch(file.toUri());
+    }
+
+    @DataProvider
+    public Iterator<Object[]> pathlessURIs()
+    {
+        return ImmutableList.of(
+            new Object[] { URI.create("file:///tmp/x.json?x=1#") },
+            new Object[] { URI.create("file://host/tmp/x.json#") }
+        ).iterator();
+    }
+
+    @Test(
+        dataProvider = "pathlessURIs",
+        expectedExceptions = IOException.class
+    )
+    public void pathlessURIsAreReportedAsIOErrors(final URI uri)
+        throws IOException
+    {
+        downloader.fetch(uri);
+    }
+
+    @Test(dataProvider = "pathlessURIs")
+    public void pathlessURIsAreReportedAsProcessingErrors(final URI uri)
+    {
+        try {
+            new SchemaLoader().get(uri);
+            fail("No exception thrown!");
+        } catch (ProcessingException e) {
+            assertMessage(e.getProcessingMessage())
+                .hasTextField("exceptionMessage").hasLevel(LogLevel.FATAL);
+        }
+    }
+
+    @Test
+    public void filesTooLargeToBeMappedAreStreamed()
+        throws IOException
+    {
+        final Path file = Files.createTempFile("schema", ".json");
+        try {
+            try (
+                final RandomAccessFile raf
+                    = new RandomAccessFile(file.toFile(), "rw");
+            ) {
+                raf.setLength(Integer.MAX_VALUE + 1L);
+            }
+            try (
+                final InputStream in = downloader.fetch(file.toUri());
+            ) {
+                assertEquals(in.read(), 0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void fileSchemasAreLoadedByDefault()
+        throws IOException, ProcessingException
+    {
+        final Path file = Files.createTempFile("schema", ".json");
+        try {
+            Files.write(file, "{\"type\":\"null\"}".getBytes(UTF_8));
+            final JsonNode node
+                = new SchemaLoader().get(file.toUri()).getBaseNode();
+            assertEquals(node.get("type").textValue(), "null");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.load.store;
+
+import com.github.fge.jsonschema.core.messages.JsonSchemaCoreMessageBundle;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.*;
+
+public final class FileSchemaStoreTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonSchemaCoreMessageBundle.class);
+
+    private static final URI URI1 = URI.create("http://foo.bar/a#");
+    private static final URI URI2 = URI.create("http://foo.bar/b#");
+    private static final byte[] CONTENT = "{}".getBytes(UTF_8);
+
+    private Path directory;
+
+    @BeforeMethod
+    public void createDirectory()
+        throws IOException
+    {
+        directory = Files.createTempDirectory("schemastore");
+    }
+
+    @AfterMethod
+    public void deleteDirectory()
+        throws IOException
+    {
+        try (
+            final DirectoryStream<Path> files
+                = Files.newDirectoryStream(directory);
+        ) {
+            for (final Path file: files)
+                Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void cannotUseNegativeMaxAge()
+    {
+        try {
+            new FileSchemaStore(directory, -1L, TimeUnit.SECONDS);
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("schemaStore.invalidMaxAge"));
+        }
+    }
+
+    @Test
+    public void storedContentIsLoadedBackUntilRemoved()
+        throws IOException
+    {
+        final SchemaStore store = new FileSchemaStore(directory);
+        assertNull(store.load(URI1));
+
+        store.store(URI1, CONTENT);
+        assertEquals(new FileSchemaStore(directory).load(URI1), CONTENT);
+        assertNull(store.load(URI2));
+
+        store.remove(URI1);
+        assertNull(store.load(URI1));
+
+        store.store(URI1, CONTENT);
+        store.store(URI2, CONTENT);
+        store.clear();
+        assertNull(store.load(URI1));
+        assertNull(store.load(URI2));
+    }
+
+    @Test
+    public void clearRemovesAllStoredFiles()
+        throws IOException
+    {
+        final SchemaStore store = new FileSchemaStore(directory);
+        store.store(URI1, CONTENT);
+
+        int count = 0;
+        String name;
+
+        try (
+            final DirectoryStream<Path> files
+                = Files.newDirectoryStream(directory);
+        ) {
+            for (final Path file: files) {
+                name = file.getFileName().toString();
+                assertTrue(name.endsWith(".data") || name.endsWith(".meta"));
+                count++;
+            }
+        }
+        assertEquals(count, 2);
+
+        store.clear();
+        try (
+            final DirectoryStream<Path> files
+                = Files.newDirectoryStream(directory);
+        ) {
+            assertFalse(files.iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void tamperedContentIsIgnored()
+        throws IOException
+    {
+        final SchemaStore store = new FileSchemaStore(directory);
+        store.store(URI1, CONTENT);
+
+        try (
+            final DirectoryStream<Path> files
+                = Files.newDirectoryStream(directory, "*.data");
+        ) {
+            for (final Path file: files)
+                Files.write(file, "[]".getBytes(UTF_8));
+        }
+
+        assertNull(store.load(URI1));
+    }
+
+    @Test
+    public void expiredContentIsIgnored()
+        throws IOException, InterruptedException
+    {
+        new FileSchemaStore(directory).store(URI1, CONTENT);
+        Thread.sleep(20L);
+
+        assertNull(new FileSchemaStore(directory, 10L, TimeUnit.MILLISECONDS)
+            .load(URI1));
+        assertEquals(new FileSchemaStore(directory, 1L, TimeUnit.HOURS)
+            .load(URI1), CONTENT);
+    }
+}
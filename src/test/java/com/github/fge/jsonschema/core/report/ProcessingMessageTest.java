@@ -262,6 +262,32 @@ public final class ProcessingMessageTest
         assertEquals(message.getMessage(), "message2: bar");
     }
 
+    @Test
+    public void copiedMessageIsEqualButIndependent()
+        throws ProcessingException
+    {
+        final ProcessingMessage message = new ProcessingMessage()
+            .setMessage("Hello %s!").putArgument("greeted", "world")
+            .setLogLevel(LogLevel.ERROR)
+            .setExceptionProvider(new ExceptionProvider()
+            {
+                @Override
+                public ProcessingException doException(
+                    final ProcessingMessage message)
+                {
+                    return new Foo(message);
+                }
+            });
+
+        final ProcessingMessage copy = message.copy();
+        assertEquals(copy.asJson(), message.asJson());
+        assertSame(copy.getLogLevel(), LogLevel.ERROR);
+        assertTrue(copy.asException() instanceof Foo);
+
+        copy.put("greeted", "nobody");
+        assertEquals(message.asJson().get("greeted").textValue(), "world");
+    }
+
     @SuppressWarnings("serial")
     private static final class Foo
         extends ProcessingException
@@ -19,7 +19,10 @@
 
 package com.github.fge.jsonschema.core.tree;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.Iterator;
@@ -32,6 +35,7 @@ import org.testng.collections.Sets;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.github.fge.jsonschema.core.ref.JsonRef;
 import com.github.fge.jsonschema.core.tree.key.SchemaKey;
@@ -71,4 +75,49 @@ public final class CanonicalSchemaTreeTest
     {
         assertFalse(schemaTree.containsRef(ref));
     }
+
+    @Test
+    public void indexedPointersYieldTheSameNodeAndContext()
+        throws IOException, ProcessingException
+    {
+        final JsonNode schema = JsonLoader.fromString("{\"id\":\"x://y/z#\","
+            + "\"a\":{\"id\":\"t#\",\"b\":{\"id\":\"#c\"}}}");
+        final SchemaKey key = SchemaKey.forJsonRef(JsonRef.emptyRef());
+        final JsonPointer ptr = JsonPointer.of("a", "b");
+        final SchemaTree tree = new CanonicalSchemaTree(key, schema);
+        final SchemaTree expected = new CanonicalSchemaTree(key, schema)
+            .setPointer(ptr);
+
+        for (int i = 0; i < 2; i++) {
+            final SchemaTree other = tree.setPointer(ptr);
+            assertEquals(other.getNode(), expected.getNode());
+            assertEquals(other.getContext(), expected.getContext());
+            assertEquals(other.setPointer(JsonPointer.empty()).getContext(),
+                tree.getContext());
+        }
+
+        final JsonRef ref = JsonRef.fromString("x://y/z#/a/b");
+        final JsonRef dangling = JsonRef.fromString("x://y/z#/a/c");
+        for (int i = 0; i < 2; i++) {
+            assertEquals(tree.matchingPointer(ref), ptr);
+            assertNull(tree.matchingPointer(dangling));
+        }
+    }
+
+    @Test
+    public void danglingPointersAreNotIndexed()
+        throws IOException
+    {
+        final JsonNode schema = JsonLoader.fromString("{\"a\":{}}");
+        final PointerIndex index
+            = new PointerIndex(schema, JsonRef.emptyRef());
+
+        for (int i = 0; i < 100; i++)
+            assertTrue(index.get(JsonPointer.of("b" + i)).node
+                .isMissingNode());
+        assertEquals(index.size(), 0);
+
+        assertEquals(index.get(JsonPointer.of("a")).node, schema.get("a"));
+        assertEquals(index.size(), 1);
+    }
 }
@@ -20,6 +20,8 @@
 package com.github.fge.jsonschema.core.tree;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
@@ -32,6 +34,8 @@ import org.testng.annotations.Test;
 import org.testng.collections.Sets;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jackson.jsonpointer.JsonPointer;
 import com.github.fge.jackson.jsonpointer.JsonPointerException;
@@ -77,4 +81,76 @@ public final class InlineSchemaTreeTest
         assertTrue(schemaTree.containsRef(ref));
         assertEquals(schemaTree.matchingPointer(ref), ptr);
     }
+
+    @Test
+    public void contextsAreFoundAmongManyIds()
+        throws JsonReferenceException
+    {
+        final int count = 1000;
+        final ObjectNode schema = JacksonUtils.nodeFactory().objectNode();
+        schema.put("id", "x://y/root#");
+        final ObjectNode definitions = schema.putObject("definitions");
+        for (int i = 0; i < count; i++)
+            definitions.putObject("s" + i).put("id", "s" + i + '#')
+                .putObject("not").put("type", "null");
+
+        final SchemaTree tree
+            = new InlineSchemaTree(SchemaKey.anonymousKey(), schema);
+
+        for (int i = 0; i < count; i += 97) {
+            assertEquals(tree.matchingPointer(
+                JsonRef.fromString("x://y/s" + i + "#/not")),
+                JsonPointer.of("definitions", "s" + i, "not"));
+        }
+        assertEquals(tree.matchingPointer(JsonRef.fromString("x://y/root#")),
+            JsonPointer.empty());
+        assertFalse(tree.containsRef(JsonRef.fromString("x://y/s" + count)));
+        assertNull(tree.matchingPointer(JsonRef.fromString("x://y/s1#/foo")));
+    }
+
+    @Test
+    public void contextIndexDependsOnTheLoadingRef()
+        throws JsonReferenceException
+    {
+        final ObjectNode schema = JacksonUtils.nodeFactory().objectNode();
+        schema.putObject("sub").put("id", "t#");
+        final JsonRef ref1 = JsonRef.fromString("x://y/z#");
+        final JsonRef ref2 = JsonRef.fromString("x://y/u#");
+
+        final SchemaTree tree1
+            = new InlineSchemaTree(SchemaKey.forJsonRef(ref1), schema);
+        final SchemaTree tree2
+            = new InlineSchemaTree(SchemaKey.forJsonRef(ref2), schema);
+        assertEquals(tree1.matchingPointer(JsonRef.fromString("x://y/t#")),
+            JsonPointer.of("sub"));
+        assertEquals(tree2.matchingPointer(JsonRef.fromString("x://y/t#")),
+            JsonPointer.of("sub"));
+        assertNull(tree1.append(JsonPointer.of("sub"))
+            .matchingPointer(JsonRef.fromString("x://y/u#")));
+        assertEquals(tree2.append(JsonPointer.of("sub"))
+            .matchingPointer(JsonRef.fromString("x://y/u#")),
+            JsonPointer.empty());
+    }
+
+    @Test
+    public void treesBuiltAfterAModificationSeeTheModifiedSchema()
+        throws JsonReferenceException
+    {
+        final ObjectNode schema = JacksonUtils.nodeFactory().objectNode();
+        final ObjectNode sub = schema.putObject("definitions").putObject("x");
+        sub.put("id", "#foo");
+        final JsonPointer ptr = JsonPointer.of("definitions", "x");
+        final JsonRef foo = JsonRef.fromString("#foo");
+        final JsonRef bar = JsonRef.fromString("#bar");
+
+        final SchemaTree tree1
+            = new InlineSchemaTree(SchemaKey.anonymousKey(), schema);
+        assertEquals(tree1.matchingPointer(foo), ptr);
+
+        sub.put("id", "#bar");
+        final SchemaTree tree2
+            = new InlineSchemaTree(SchemaKey.anonymousKey(), schema);
+        assertEquals(tree2.matchingPointer(bar), ptr);
+        assertNull(tree2.matchingPointer(foo));
+    }
 }
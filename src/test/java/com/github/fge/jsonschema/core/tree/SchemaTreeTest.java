@@ -153,6 +153,26 @@ public final class SchemaTreeTest
         assertEquals(tree.getContext(), origRef);
     }
 
+    @Test(dataProvider = "getContexts")
+    public void successiveAppendsCalculateTheSameContextAsSetPointer(
+        final String path, final String s)
+        throws JsonPointerException, JsonReferenceException
+    {
+        final JsonPointer ptr = new JsonPointer(path).append("foo");
+        final SchemaTree root
+            = new InlineSchemaTree(SchemaKey.anonymousKey(), schema);
+        final SchemaTree expected = root.setPointer(ptr);
+
+        SchemaTree tree = root;
+        for (final String token: ptr.toString().substring(1).split("/"))
+            tree = tree.append(JsonPointer.of(token));
+
+        assertEquals(tree.getPointer(), ptr);
+        assertEquals(tree.getContext(), expected.getContext());
+        assertEquals(tree.getNode(), expected.getNode());
+        assertEquals(tree.getContext(), JsonRef.fromString(s));
+    }
+
     @DataProvider
     public Iterator<Object[]> nonSchemas()
     {
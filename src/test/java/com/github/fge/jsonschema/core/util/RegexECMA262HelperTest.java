@@ -19,6 +19,7 @@
 
 package com.github.fge.jsonschema.core.util;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.ImmutableList;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -117,4 +118,37 @@ public final class RegexECMA262HelperTest
         assertEquals(RhinoHelper.regMatch(regex, input), valid);
         assertEquals(rhinoScript(regMatch, regex, input), valid);
     }
+
+    @Test
+    public void compiledRegexesAreCached()
+    {
+        final String regex = "^cached\\d+$";
+        final CacheStats before = RegexECMA262Helper.getCacheStats();
+        assertTrue(RegexECMA262Helper.regexIsValid(regex));
+        assertTrue(RegexECMA262Helper.regMatch(regex, "cached42"));
+        assertFalse(RegexECMA262Helper.regMatch(regex, "cached"));
+        final CacheStats stats
+            = RegexECMA262Helper.getCacheStats().minus(before);
+        assertEquals(stats.missCount(), 1L);
+        assertEquals(stats.hitCount(), 2L);
+    }
+
+    @Test
+    public void invalidRegexesAreCachedToo()
+    {
+        final String regex = "(?<=cached)";
+        final CacheStats before = RegexECMA262Helper.getCacheStats();
+        assertFalse(RegexECMA262Helper.regexIsValid(regex));
+        assertFalse(RegexECMA262Helper.regexIsValid(regex));
+        final CacheStats stats
+            = RegexECMA262Helper.getCacheStats().minus(before);
+        assertEquals(stats.missCount(), 1L);
+        assertEquals(stats.hitCount(), 1L);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void matchingAgainstAnInvalidRegexThrowsAnException()
+    {
+        RegexECMA262Helper.regMatch("(", "");
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jsonschema.core.util;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.regex.PatternSyntaxException;
+
+import static org.testng.Assert.*;
+
+public final class RegexECMA262TranslatorTest
+{
+    @DataProvider
+    public Iterator<Object[]> validRegexes()
+    {
+        return ImmutableList.of(
+            new Object[] { "" },
+            new Object[] { "a|" },
+            new Object[] { "|" },
+            new Object[] { "[]" },
+            new Object[] { "[^]" },
+            new Object[] { "a{" },
+            new Object[] { "a{1" },
+            new Object[] { "a{,5}" },
+            new Object[] { "}" },
+            new Object[] { "]" },
+            new Object[] { "a+?" },
+            new Object[] { "(a)\\1" },
+            new Object[] { "[\\d-z]" },
+            new Object[] { "[a-]" },
+            new Object[] { "(?!)" },
+            new Object[] { "(?=a)b" },
+            new Object[] { "\\c" },
+            new Object[] { "\\p{L}" },
+            new Object[] { "\\u00e9\\x41\\cJ\\0" }
+        ).iterator();
+    }
+
+    @Test(dataProvider = "validRegexes")
+    public void validRegexesAreTranslated(final String regex)
+    {
+        RegexECMA262Translator.compile(regex);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> invalidRegexes()
+    {
+        return ImmutableList.of(
+            new Object[] { "*" },
+            new Object[] { "a**" },
+            new Object[] { "a++" },
+            new Object[] { "a?+" },
+            new Object[] { "x{1}{2}" },
+            new Object[] { "a{2,1}" },
+            new Object[] { "^*" },
+            new Object[] { "\\b+" },
+            new Object[] { "(?=a)*" },
+            new Object[] { "(" },
+            new Object[] { ")" },
+            new Object[] { "[" },
+            new Object[] { "\\" },
+            new Object[] { "[b-a]" },
+            new Object[] { "[a-\\d]" },
+            new Object[] { "(?<=a)b" },
+            new Object[] { "(?<!a)b" },
+            new Object[] { "(?<name>a)" },
+            new Object[] { "(?i)a" },
+            new Object[] { "(?>a)" },
+            new Object[] { "(?#comment)" }
+        ).iterator();
+    }
+
+    @Test(
+        dataProvider = "invalidRegexes",
+        expectedExceptions = PatternSyntaxException.class
+    )
+    public void invalidRegexesAreRejected(final String regex)
+    {
+        RegexECMA262Translator.translate(regex);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> matchingTestCases()
+    {
+        return ImmutableList.of(
+            new Object[] { "^.$", "\n", false },
+            new Object[] { "^.$", "\u2028", false },
+            new Object[] { "a$", "a\n", false },
+            new Object[] { "^a", "b\na", false },
+            new Object[] { "\\s", "\u00a0", true },
+            new Object[] { "\\s", "\ufeff", true },
+            new Object[] { "\\w", "\u00e9", false },
+            new Object[] { "\\bx", "\u00e9x", true },
+            new Object[] { "\\d", "\u0663", false },
+            new Object[] { "[]", "", false },
+            new Object[] { "[^]", "\n", true },
+            new Object[] { "[^\\D]", "1", true },
+            new Object[] { "[^\\Da]", "a", false },
+            new Object[] { "[\\d-z]", "-", true },
+            new Object[] { "[\\d-a-c]", "b", false },
+            new Object[] { "[&&]", "&", true },
+            new Object[] { "a{1", "a{1", true },
+            new Object[] { "\\A", "A", true },
+            new Object[] { "\\p{L}", "p{L}", true },
+            new Object[] { "\\8", "8", true },
+            new Object[] { "\\x4", "x4", true },
+            new Object[] { "\\u12", "u12", true },
+            new Object[] { "\\cJ", "\n", true },
+            new Object[] { "\\101", "A", true },
+            new Object[] { "(a)\\1", "aa", true },
+            new Object[] { "(a)\\2", "a\u0002", true }
+        ).iterator();
+    }
+
+    @Test(dataProvider = "matchingTestCases")
+    public void translatedRegexesFollowECMA262Semantics(final String regex,
+        final String input, final boolean match)
+    {
+        assertEquals(RegexECMA262Translator.compile(regex).matcher(input)
+            .find(), match);
+    }
+}